@@ -0,0 +1,112 @@
+package com.sky.bench;
+
+import com.sky.aspect.AutoFillAspect;
+import com.sky.context.BaseContext;
+import com.sky.entity.Category;
+import com.sky.mapper.CategoryMapper;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 公共字段自动填充，每次调用带@AutoFill注解的mapper方法时执行
+ * insert/update为切面的实现，reflectionInsert/reflectionUpdate为每次反射查找setter的旧实现
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AutoFillBenchmark {
+
+    private final AutoFillAspect autoFillAspect = new AutoFillAspect();
+    private final Category category = new Category();
+
+    private JoinPoint insertJoinPoint;
+    private JoinPoint updateJoinPoint;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        BaseContext.setCurrentId(1L);
+        insertJoinPoint = joinPoint(CategoryMapper.class.getMethod("addCategory", Category.class), category);
+        updateJoinPoint = joinPoint(CategoryMapper.class.getMethod("update", Category.class), category);
+    }
+
+    @Benchmark
+    public Category insert() {
+        autoFillAspect.autoFill(insertJoinPoint);
+        return category;
+    }
+
+    @Benchmark
+    public Category update() {
+        autoFillAspect.autoFill(updateJoinPoint);
+        return category;
+    }
+
+    @Benchmark
+    public Category reflectionInsert() throws Exception {
+        ReflectionAutoFill.insert(category, LocalDateTime.now(), BaseContext.getCurrentId());
+        return category;
+    }
+
+    @Benchmark
+    public Category reflectionUpdate() throws Exception {
+        ReflectionAutoFill.update(category, LocalDateTime.now(), BaseContext.getCurrentId());
+        return category;
+    }
+
+    /**
+     * 构造只支持getSignature和getArgs的连接点
+     * @param method 被拦截的mapper方法
+     * @param entity 方法参数
+     * @return
+     */
+    static JoinPoint joinPoint(Method method, Object entity) {
+        MethodSignature signature = proxy(MethodSignature.class, (name, args) ->
+                "getMethod".equals(name) ? method : null);
+        Object[] joinPointArgs = {entity};
+        return proxy(JoinPoint.class, (name, args) -> {
+            if ("getSignature".equals(name)) {
+                return signature;
+            }
+            return "getArgs".equals(name) ? joinPointArgs : null;
+        });
+    }
+
+    /**
+     * 创建接口的代理对象，Object的方法按对象标识处理，其余方法交给handler
+     * @param type
+     * @param handler 参数为方法名和方法参数
+     * @return
+     */
+    static <T> T proxy(Class<T> type, ProxyHandler handler) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return p == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(p);
+                    default:
+                        return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(p));
+                }
+            }
+            return handler.invoke(method.getName(), args);
+        });
+        return type.cast(proxy);
+    }
+
+    interface ProxyHandler {
+        Object invoke(String name, Object[] args) throws Throwable;
+    }
+}
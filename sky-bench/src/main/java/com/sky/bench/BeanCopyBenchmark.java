@@ -0,0 +1,87 @@
+package com.sky.bench;
+
+import com.sky.converter.DishConverter;
+import com.sky.converter.OrderConverter;
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.entity.Dish;
+import com.sky.entity.OrderDetail;
+import com.sky.entity.Orders;
+import com.sky.entity.ShoppingCart;
+import com.sky.vo.DishVO;
+import com.sky.vo.OrderVO;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.beans.BeanUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求处理中的对象拷贝：BeanUtils.copyProperties与编译期生成的转换器对比
+ * 提交数据拷贝到订单、购物车拷贝到订单明细、订单拷贝到订单视图、菜品拷贝到菜品视图
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BeanCopyBenchmark {
+
+    private final OrderConverter orderConverter = Mappers.getMapper(OrderConverter.class);
+    private final DishConverter dishConverter = Mappers.getMapper(DishConverter.class);
+
+    private final OrdersSubmitDTO ordersSubmitDTO = BenchData.ordersSubmitDTO();
+    private final ShoppingCart shoppingCart = BenchData.shoppingCart(1L);
+    private final Orders orders = BenchData.orderVOList(1).get(0);
+    private final Dish dish = BenchData.dish(1L);
+
+    @Benchmark
+    public Orders ordersSubmitDTOToOrders() {
+        Orders orders = new Orders();
+        BeanUtils.copyProperties(ordersSubmitDTO, orders);
+        return orders;
+    }
+
+    @Benchmark
+    public Orders ordersSubmitDTOToOrdersConverter() {
+        return orderConverter.toOrders(ordersSubmitDTO);
+    }
+
+    @Benchmark
+    public OrderDetail shoppingCartToOrderDetail() {
+        OrderDetail orderDetail = new OrderDetail();
+        BeanUtils.copyProperties(shoppingCart, orderDetail);
+        return orderDetail;
+    }
+
+    @Benchmark
+    public OrderDetail shoppingCartToOrderDetailConverter() {
+        return orderConverter.toOrderDetail(shoppingCart);
+    }
+
+    @Benchmark
+    public OrderVO ordersToOrderVO() {
+        OrderVO orderVO = new OrderVO();
+        BeanUtils.copyProperties(orders, orderVO);
+        return orderVO;
+    }
+
+    @Benchmark
+    public OrderVO ordersToOrderVOConverter() {
+        return orderConverter.toOrderVO(orders);
+    }
+
+    @Benchmark
+    public DishVO dishToDishVO() {
+        DishVO dishVO = new DishVO();
+        BeanUtils.copyProperties(dish, dishVO);
+        return dishVO;
+    }
+
+    @Benchmark
+    public DishVO dishToDishVOConverter() {
+        return dishConverter.toDishVO(dish);
+    }
+}
@@ -0,0 +1,128 @@
+package com.sky.bench;
+
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.entity.Dish;
+import com.sky.entity.DishFlavor;
+import com.sky.entity.OrderDetail;
+import com.sky.entity.Orders;
+import com.sky.entity.ShoppingCart;
+import com.sky.vo.DishVO;
+import com.sky.vo.OrderVO;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基准测试使用的样例数据，字段取值接近线上数据
+ */
+public class BenchData {
+
+    public static OrdersSubmitDTO ordersSubmitDTO() {
+        OrdersSubmitDTO ordersSubmitDTO = new OrdersSubmitDTO();
+        ordersSubmitDTO.setAddressBookId(1L);
+        ordersSubmitDTO.setPayMethod(1);
+        ordersSubmitDTO.setRemark("少放辣");
+        ordersSubmitDTO.setEstimatedDeliveryTime(LocalDateTime.now().plusHours(1));
+        ordersSubmitDTO.setDeliveryStatus(1);
+        ordersSubmitDTO.setTablewareNumber(2);
+        ordersSubmitDTO.setTablewareStatus(0);
+        ordersSubmitDTO.setPackAmount(2);
+        ordersSubmitDTO.setAmount(new BigDecimal("88.00"));
+        return ordersSubmitDTO;
+    }
+
+    public static ShoppingCart shoppingCart(long id) {
+        return ShoppingCart.builder()
+                .id(id)
+                .name("水煮鱼")
+                .userId(1L)
+                .dishId(id)
+                .dishFlavor("不辣,不要葱")
+                .number(2)
+                .amount(new BigDecimal("56.00"))
+                .image("https://sky-itcast.oss-cn-beijing.aliyuncs.com/dish/" + id + ".png")
+                .createTime(LocalDateTime.now())
+                .build();
+    }
+
+    public static Dish dish(long id) {
+        return Dish.builder()
+                .id(id)
+                .name("水煮鱼")
+                .categoryId(11L)
+                .price(new BigDecimal("56.00"))
+                .image("https://sky-itcast.oss-cn-beijing.aliyuncs.com/dish/" + id + ".png")
+                .description("鲜嫩的鱼片，麻辣鲜香")
+                .status(1)
+                .createTime(LocalDateTime.now())
+                .updateTime(LocalDateTime.now())
+                .createUser(1L)
+                .updateUser(1L)
+                .build();
+    }
+
+    public static List<DishVO> dishVOList(int size) {
+        List<DishVO> list = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            DishVO dishVO = DishVO.builder()
+                    .id(i)
+                    .name("水煮鱼" + i)
+                    .categoryId(11L)
+                    .price(new BigDecimal("56.00"))
+                    .image("https://sky-itcast.oss-cn-beijing.aliyuncs.com/dish/" + i + ".png")
+                    .description("鲜嫩的鱼片，麻辣鲜香")
+                    .status(1)
+                    .updateTime(LocalDateTime.now())
+                    .categoryName("传统主食")
+                    .flavors(Arrays.asList(
+                            DishFlavor.builder().id(i * 2).dishId(i).name("辣度").value("[\"不辣\",\"微辣\",\"中辣\",\"重辣\"]").build(),
+                            DishFlavor.builder().id(i * 2 + 1).dishId(i).name("忌口").value("[\"不要葱\",\"不要蒜\",\"不要香菜\"]").build()))
+                    .build();
+            list.add(dishVO);
+        }
+        return list;
+    }
+
+    public static List<OrderVO> orderVOList(int size) {
+        List<OrderVO> list = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            OrderVO orderVO = new OrderVO();
+            orderVO.setId(i);
+            orderVO.setNumber(String.valueOf(1700000000000L + i));
+            orderVO.setStatus(Orders.TO_BE_CONFIRMED);
+            orderVO.setUserId(1L);
+            orderVO.setAddressBookId(1L);
+            orderVO.setOrderTime(LocalDateTime.now());
+            orderVO.setCheckoutTime(LocalDateTime.now());
+            orderVO.setPayMethod(1);
+            orderVO.setPayStatus(Orders.PAID);
+            orderVO.setAmount(new BigDecimal("88.00"));
+            orderVO.setPhone("13800000000");
+            orderVO.setAddress("北京市昌平区金燕龙办公楼");
+            orderVO.setConsignee("张三");
+            orderVO.setEstimatedDeliveryTime(LocalDateTime.now().plusHours(1));
+            orderVO.setPackAmount(2);
+            orderVO.setTablewareNumber(2);
+            orderVO.setOrderDishes("水煮鱼*2;米饭*2;");
+            List<OrderDetail> orderDetailList = new ArrayList<>();
+            for (long j = 1; j <= 3; j++) {
+                OrderDetail orderDetail = new OrderDetail();
+                orderDetail.setId(i * 10 + j);
+                orderDetail.setName("水煮鱼");
+                orderDetail.setOrderId(i);
+                orderDetail.setDishId(j);
+                orderDetail.setDishFlavor("不辣");
+                orderDetail.setNumber(2);
+                orderDetail.setAmount(new BigDecimal("28.00"));
+                orderDetail.setImage("https://sky-itcast.oss-cn-beijing.aliyuncs.com/dish/" + j + ".png");
+                orderDetailList.add(orderDetail);
+            }
+            orderVO.setOrderDetailList(orderDetailList);
+            list.add(orderVO);
+        }
+        return list;
+    }
+}
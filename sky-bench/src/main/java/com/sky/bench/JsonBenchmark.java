@@ -0,0 +1,85 @@
+package com.sky.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sky.config.RedisConfiguration;
+import com.sky.json.JacksonObjectMapper;
+import com.sky.result.Result;
+import com.sky.vo.DishVO;
+import com.sky.vo.OrderVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接口响应的json序列化，以及Redis缓存使用json和jdk两种序列化方式的耗时对比
+ * 两种序列化方式的数据大小在初始化时输出
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonBenchmark {
+
+    @Param({"10", "100"})
+    private int size;
+
+    private final ObjectMapper objectMapper = new JacksonObjectMapper();
+    private final RedisSerializer<Object> jsonSerializer = RedisConfiguration.valueSerializer("json");
+    private final RedisSerializer<Object> jdkSerializer = RedisConfiguration.valueSerializer("jdk");
+
+    private List<DishVO> dishVOList;
+    private List<OrderVO> orderVOList;
+    private Result<List<DishVO>> dishResult;
+    private byte[] dishResultJson;
+    private byte[] dishResultJdk;
+
+    @Setup
+    public void setup() {
+        dishVOList = BenchData.dishVOList(size);
+        orderVOList = BenchData.orderVOList(size);
+        dishResult = Result.success(dishVOList);
+        dishResultJson = jsonSerializer.serialize(dishResult);
+        dishResultJdk = jdkSerializer.serialize(dishResult);
+        System.out.printf("%n菜品数: %d, Redis json序列化: %d 字节, jdk序列化: %d 字节%n",
+                size, dishResultJson.length, dishResultJdk.length);
+    }
+
+    @Benchmark
+    public String writeDishVOList() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(dishVOList);
+    }
+
+    @Benchmark
+    public String writeOrderVOList() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(orderVOList);
+    }
+
+    @Benchmark
+    public byte[] redisJsonSerialize() {
+        return jsonSerializer.serialize(dishResult);
+    }
+
+    @Benchmark
+    public byte[] redisJdkSerialize() {
+        return jdkSerializer.serialize(dishResult);
+    }
+
+    @Benchmark
+    public Object redisJsonDeserialize() {
+        return jsonSerializer.deserialize(dishResultJson);
+    }
+
+    @Benchmark
+    public Object redisJdkDeserialize() {
+        return jdkSerializer.deserialize(dishResultJdk);
+    }
+}
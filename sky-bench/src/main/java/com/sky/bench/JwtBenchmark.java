@@ -0,0 +1,50 @@
+package com.sky.bench;
+
+import com.sky.constant.JwtClaimsConstant;
+import com.sky.interceptor.JwtClaimsCache;
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 拦截器中的jwt校验：每次解析并校验签名，以及使用已校验令牌缓存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtBenchmark {
+
+    private static final String SECRET_KEY = "itcast";
+
+    private String token;
+    private JwtClaimsCache claimsCache;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtClaimsConstant.EMP_ID, 1L);
+        token = JwtUtil.createJWT(SECRET_KEY, TimeUnit.HOURS.toMillis(2), claims);
+        claimsCache = new JwtClaimsCache(SECRET_KEY, JwtClaimsConstant.EMP_ID, 10000);
+        claimsCache.verify(token);
+    }
+
+    @Benchmark
+    public Claims parseJWT() {
+        return JwtUtil.parseJWT(SECRET_KEY, token);
+    }
+
+    @Benchmark
+    public Long verifyCached() {
+        return claimsCache.verify(token);
+    }
+}
@@ -0,0 +1,32 @@
+package com.sky.bench;
+
+import com.sky.constant.AutoFillConstant;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+
+/**
+ * 改用MethodHandle之前的公共字段填充方式，作为对比基准：每次调用都通过getDeclaredMethod查找setter再反射调用
+ */
+public class ReflectionAutoFill {
+
+    public static void insert(Object entity, LocalDateTime now, Long currentId) throws Exception {
+        Method setCreateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_TIME, LocalDateTime.class);
+        Method setCreateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_CREATE_USER, Long.class);
+        Method setUpdateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
+        Method setUpdateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
+
+        setCreateTime.invoke(entity, now);
+        setCreateUser.invoke(entity, currentId);
+        setUpdateTime.invoke(entity, now);
+        setUpdateUser.invoke(entity, currentId);
+    }
+
+    public static void update(Object entity, LocalDateTime now, Long currentId) throws Exception {
+        Method setUpdateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
+        Method setUpdateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
+
+        setUpdateTime.invoke(entity, now);
+        setUpdateUser.invoke(entity, currentId);
+    }
+}
@@ -0,0 +1,85 @@
+package com.sky.bench;
+
+import com.sky.websocket.WebSocketServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 来单提醒群发给N个会话，会话为代理对象，发送时立即回调发送成功，只测量推送方的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WebSocketFanOutBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int sessions;
+
+    private final WebSocketServer webSocketServer = new WebSocketServer();
+    private final List<Session> sessionList = new ArrayList<>();
+    private final String message = WebSocketServer.buildMessage(1, 1L, "订单号: 1700000000000");
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < sessions; i++) {
+            Session session = session();
+            sessionList.add(session);
+            webSocketServer.onOpen(session, "bench-" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (int i = 0; i < sessionList.size(); i++) {
+            webSocketServer.onClose(sessionList.get(i), "bench-" + i);
+        }
+        sessionList.clear();
+    }
+
+    @Benchmark
+    public void sendToAllClient() {
+        webSocketServer.sendToAllClient(message);
+    }
+
+    @Benchmark
+    public void sendToTopic() {
+        webSocketServer.sendToTopic(1, message);
+    }
+
+    private static Session session() {
+        RemoteEndpoint.Async async = AutoFillBenchmark.proxy(RemoteEndpoint.Async.class, (name, args) -> {
+            if ("sendText".equals(name) && args.length == 2) {
+                ((SendHandler) args[1]).onResult(new SendResult());
+            }
+            return null;
+        });
+        return AutoFillBenchmark.proxy(Session.class, (name, args) -> {
+            switch (name) {
+                case "getAsyncRemote":
+                    return async;
+                case "getRequestParameterMap":
+                    return Collections.emptyMap();
+                case "isOpen":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+}
@@ -23,5 +23,10 @@ public class MessageConstant {
     public static final String DISH_BE_RELATED_BY_SETMEAL = "当前菜品关联了套餐,不能删除";
     public static final String ORDER_STATUS_ERROR = "订单状态错误";
     public static final String ORDER_NOT_FOUND = "订单不存在";
+    public static final String REPORT_DATE_RANGE_ERROR = "报表日期范围错误";
+    public static final String REPORT_EXPORT_TOO_MANY = "进行中的导出任务过多，请等待完成后再试";
+    public static final String REPORT_EXPORT_BUSY = "导出任务繁忙，请稍后再试";
+    public static final String REPORT_EXPORT_NOT_FOUND = "导出任务不存在";
+    public static final String REPORT_EXPORT_NOT_READY = "导出任务未完成";
 
 }
@@ -0,0 +1,16 @@
+package com.sky.constant;
+
+/**
+ * WebSocket推送消息类型常量
+ */
+public class WebSocketConstant {
+
+    //来单提醒
+    public static final Integer TYPE_NEW_ORDER = 1;
+
+    //客户催单
+    public static final Integer TYPE_REMINDER = 2;
+
+    //客户端建立连接时通过该参数订阅消息类型，多个类型用逗号分隔，例如 /ws/{sid}?types=1,2，不传表示订阅全部类型
+    public static final String TYPES_PARAM = "types";
+}
@@ -0,0 +1,27 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.cache")
+@Data
+public class CacheProperties {
+
+    /**
+     * 本地缓存每个缓存名称下最多保存的条目数
+     */
+    private long localMaximumSize = 1000;
+
+    /**
+     * 本地缓存的过期时间(秒)，兜底保证其他节点的失效消息丢失时数据最终一致
+     */
+    private long localTtl = 60;
+
+    /**
+     * Redis缓存的过期时间(秒)
+     */
+    private long redisTtl = 3600;
+
+}
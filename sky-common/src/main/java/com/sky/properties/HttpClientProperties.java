@@ -0,0 +1,47 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.http-client")
+@Data
+public class HttpClientProperties {
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxTotal = 200;
+
+    /**
+     * 每个目标地址(协议+主机+端口)最多的连接数
+     */
+    private int maxPerRoute = 50;
+
+    /**
+     * 建立连接的超时时间(毫秒)
+     */
+    private int connectTimeout = 5000;
+
+    /**
+     * 读取响应的超时时间(毫秒)
+     */
+    private int socketTimeout = 5000;
+
+    /**
+     * 从连接池获取连接的超时时间(毫秒)
+     */
+    private int connectionRequestTimeout = 5000;
+
+    /**
+     * 空闲连接的保留时间(秒)，超过后由后台线程关闭
+     */
+    private int idleTimeout = 30;
+
+    /**
+     * 连接空闲超过该时间(毫秒)后再次使用前先检查是否可用
+     */
+    private int validateAfterInactivity = 2000;
+
+}
@@ -0,0 +1,17 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-task")
+@Data
+public class OrderTaskProperties {
+
+    /**
+     * 定时任务批量修改订单状态时每批处理的订单数
+     */
+    private int batchSize = 500;
+
+}
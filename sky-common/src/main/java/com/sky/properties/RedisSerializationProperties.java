@@ -0,0 +1,17 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.redis")
+@Data
+public class RedisSerializationProperties {
+
+    /**
+     * RedisTemplate的value序列化方式：json 使用JacksonObjectMapper序列化为json，jdk 使用JDK序列化
+     */
+    private String valueSerializer = "json";
+
+}
@@ -0,0 +1,37 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.report-export")
+@Data
+public class ReportExportProperties {
+
+    /**
+     * 执行导出任务的线程数
+     */
+    private int threads = 2;
+
+    /**
+     * 排队等待执行的任务数上限
+     */
+    private int queueCapacity = 10;
+
+    /**
+     * 每个用户同时进行中的任务数上限
+     */
+    private int maxJobsPerUser = 2;
+
+    /**
+     * 导出文件的保存目录
+     */
+    private String dir = System.getProperty("java.io.tmpdir") + "/sky-report-export";
+
+    /**
+     * 任务完成后导出文件的保留时间(分钟)
+     */
+    private long retainMinutes = 60;
+
+}
@@ -0,0 +1,17 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.snowflake")
+@Data
+public class SnowflakeProperties {
+
+    /**
+     * 节点id，取值0~1023，多个节点部署时每个节点必须配置不同的值
+     */
+    private long workerId;
+
+}
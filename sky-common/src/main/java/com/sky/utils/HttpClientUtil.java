@@ -1,179 +1,272 @@
 package com.sky.utils;
 
 import com.alibaba.fastjson.JSONObject;
+import com.sky.properties.HttpClientProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Http工具类
+ * 所有请求共用一个带连接池的HttpClient，连接在请求结束后归还连接池并保持长连接，同一地址的后续请求不需要重新建立TCP和TLS连接；
+ * 空闲超时和已过期的连接由后台线程关闭；
+ * 在Spring中通过注入的实例调用，静态方法使用按默认配置创建的共享实例，供没有注入条件的地方使用，该实例在JVM退出时关闭
  */
-public class HttpClientUtil {
+@Slf4j
+public class HttpClientUtil implements Closeable {
 
     static final  int TIMEOUT_MSEC = 5 * 1000;
 
+    //静态方法使用的共享实例，第一次使用时创建
+    private static volatile HttpClientUtil defaultInstance;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+
+    //请求统计
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder requestNanos = new LongAdder();
+    private final AtomicLong maxRequestNanos = new AtomicLong();
+
+    public HttpClientUtil(HttpClientProperties httpClientProperties) {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(httpClientProperties.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(httpClientProperties.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity(httpClientProperties.getValidateAfterInactivity());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(httpClientProperties.getConnectTimeout())
+                .setConnectionRequestTimeout(httpClientProperties.getConnectionRequestTimeout())
+                .setSocketTimeout(httpClientProperties.getSocketTimeout())
+                .build();
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(httpClientProperties.getIdleTimeout(), TimeUnit.SECONDS)
+                .build();
+    }
+
     /**
      * 发送GET方式请求
      * @param url
      * @param paramMap
-     * @return
+     * @return 响应内容，请求失败或响应状态不是200时返回空字符串
      */
     public static String doGet(String url,Map<String,String> paramMap){
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        return getDefaultInstance().get(url, paramMap);
+    }
 
-        String result = "";
-        CloseableHttpResponse response = null;
+    /**
+     * 发送POST方式请求
+     * @param url
+     * @param paramMap
+     * @return
+     * @throws IOException
+     */
+    public static String doPost(String url, Map<String, String> paramMap) throws IOException {
+        return getDefaultInstance().post(url, paramMap);
+    }
 
-        try{
+    /**
+     * 发送POST方式请求
+     * @param url
+     * @param paramMap
+     * @return
+     * @throws IOException
+     */
+    public static String doPost4Json(String url, Map<String, String> paramMap) throws IOException {
+        return getDefaultInstance().postJson(url, paramMap);
+    }
+
+    /**
+     * 发送GET方式请求
+     * @param url
+     * @param paramMap
+     * @return 响应内容，请求失败或响应状态不是200时返回空字符串
+     */
+    public String get(String url, Map<String, String> paramMap) {
+        try {
             URIBuilder builder = new URIBuilder(url);
             if(paramMap != null){
-                for (String key : paramMap.keySet()) {
-                    builder.addParameter(key,paramMap.get(key));
+                for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                    builder.addParameter(param.getKey(), param.getValue());
                 }
             }
             URI uri = builder.build();
 
             //创建GET请求
             HttpGet httpGet = new HttpGet(uri);
-
-            //发送请求
-            response = httpClient.execute(httpGet);
-
-            //判断响应状态
-            if(response.getStatusLine().getStatusCode() == 200){
-                result = EntityUtils.toString(response.getEntity(),"UTF-8");
-            }
-        }catch (Exception e){
-            e.printStackTrace();
-        }finally {
-            try {
-                response.close();
-                httpClient.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            return execute(httpGet, true);
+        } catch (Exception e) {
+            //不输出请求参数，其中可能包含密钥
+            log.error("GET请求失败:{}, {}", url, e.getMessage());
+            return "";
         }
-
-        return result;
     }
 
     /**
-     * 发送POST方式请求
+     * 发送POST方式请求，参数以表单格式提交
      * @param url
      * @param paramMap
      * @return
      * @throws IOException
      */
-    public static String doPost(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        CloseableHttpResponse response = null;
-        String resultString = "";
-
-        try {
-            // 创建Http Post请求
-            HttpPost httpPost = new HttpPost(url);
+    public String post(String url, Map<String, String> paramMap) throws IOException {
+        // 创建Http Post请求
+        HttpPost httpPost = new HttpPost(url);
 
-            // 创建参数列表
-            if (paramMap != null) {
-                List<NameValuePair> paramList = new ArrayList();
-                for (Map.Entry<String, String> param : paramMap.entrySet()) {
-                    paramList.add(new BasicNameValuePair(param.getKey(), param.getValue()));
-                }
-                // 模拟表单
-                UrlEncodedFormEntity entity = new UrlEncodedFormEntity(paramList);
-                httpPost.setEntity(entity);
-            }
-
-            httpPost.setConfig(builderRequestConfig());
-
-            // 执行http请求
-            response = httpClient.execute(httpPost);
-
-            resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
-        } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+        // 创建参数列表
+        if (paramMap != null) {
+            List<NameValuePair> paramList = new ArrayList<>();
+            for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                paramList.add(new BasicNameValuePair(param.getKey(), param.getValue()));
             }
+            // 模拟表单
+            httpPost.setEntity(new UrlEncodedFormEntity(paramList, StandardCharsets.UTF_8));
         }
-
-        return resultString;
+        return execute(httpPost, false);
     }
 
     /**
-     * 发送POST方式请求
+     * 发送POST方式请求，参数以json格式提交
      * @param url
      * @param paramMap
      * @return
      * @throws IOException
      */
-    public static String doPost4Json(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        CloseableHttpResponse response = null;
-        String resultString = "";
-
-        try {
-            // 创建Http Post请求
-            HttpPost httpPost = new HttpPost(url);
+    public String postJson(String url, Map<String, String> paramMap) throws IOException {
+        // 创建Http Post请求
+        HttpPost httpPost = new HttpPost(url);
 
-            if (paramMap != null) {
-                //构造json格式数据
-                JSONObject jsonObject = new JSONObject();
-                for (Map.Entry<String, String> param : paramMap.entrySet()) {
-                    jsonObject.put(param.getKey(),param.getValue());
-                }
-                StringEntity entity = new StringEntity(jsonObject.toString(),"utf-8");
-                //设置请求编码
-                entity.setContentEncoding("utf-8");
-                //设置数据类型
-                entity.setContentType("application/json");
-                httpPost.setEntity(entity);
+        if (paramMap != null) {
+            //构造json格式数据
+            JSONObject jsonObject = new JSONObject();
+            for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                jsonObject.put(param.getKey(),param.getValue());
             }
+            StringEntity entity = new StringEntity(jsonObject.toString(),"utf-8");
+            //设置请求编码
+            entity.setContentEncoding("utf-8");
+            //设置数据类型
+            entity.setContentType("application/json");
+            httpPost.setEntity(entity);
+        }
+        return execute(httpPost, false);
+    }
 
-            httpPost.setConfig(builderRequestConfig());
+    /**
+     * 连接池及请求统计：租用中、空闲、等待中的连接数，最大连接数，请求数、失败数、平均和最大耗时(毫秒)
+     * 最大耗时在每次获取后重新统计
+     * @return
+     */
+    public Map<String, Number> getMetrics() {
+        PoolStats poolStats = connectionManager.getTotalStats();
+        long requests = requestCount.sum();
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("leased", poolStats.getLeased());
+        metrics.put("available", poolStats.getAvailable());
+        metrics.put("pending", poolStats.getPending());
+        metrics.put("max", poolStats.getMax());
+        metrics.put("requests", requests);
+        metrics.put("failed", failedCount.sum());
+        metrics.put("avgRequestMillis", requests == 0 ? 0.0 : requestNanos.sum() / 1e6 / requests);
+        metrics.put("maxRequestMillis", maxRequestNanos.getAndSet(0) / 1e6);
+        return metrics;
+    }
 
-            // 执行http请求
-            response = httpClient.execute(httpPost);
+    /**
+     * 关闭连接池及后台清理线程
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
 
-            resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
+    /**
+     * 执行请求并读取响应内容，响应读取完后连接归还连接池
+     * @param request
+     * @param onlyOk 是否只返回状态为200的响应内容
+     * @return
+     * @throws IOException
+     */
+    private String execute(HttpUriRequest request, boolean onlyOk) throws IOException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            HttpEntity entity = response.getEntity();
+            String result = "";
+            if (!onlyOk || response.getStatusLine().getStatusCode() == 200) {
+                result = entity == null ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+            }
+            //没有读取的响应内容也要读完，否则连接不能复用
+            EntityUtils.consume(entity);
+            success = true;
+            return result;
         } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+            long nanos = System.nanoTime() - start;
+            requestCount.increment();
+            requestNanos.add(nanos);
+            maxRequestNanos.accumulateAndGet(nanos, Math::max);
+            if (!success) {
+                failedCount.increment();
             }
         }
-
-        return resultString;
-    }
-    private static RequestConfig builderRequestConfig() {
-        return RequestConfig.custom()
-                .setConnectTimeout(TIMEOUT_MSEC)
-                .setConnectionRequestTimeout(TIMEOUT_MSEC)
-                .setSocketTimeout(TIMEOUT_MSEC).build();
     }
 
+    private static HttpClientUtil getDefaultInstance() {
+        HttpClientUtil instance = defaultInstance;
+        if (instance == null) {
+            synchronized (HttpClientUtil.class) {
+                instance = defaultInstance;
+                if (instance == null) {
+                    HttpClientProperties httpClientProperties = new HttpClientProperties();
+                    httpClientProperties.setConnectTimeout(TIMEOUT_MSEC);
+                    httpClientProperties.setSocketTimeout(TIMEOUT_MSEC);
+                    httpClientProperties.setConnectionRequestTimeout(TIMEOUT_MSEC);
+                    instance = new HttpClientUtil(httpClientProperties);
+                    defaultInstance = instance;
+                    //共享实例不受Spring管理，JVM退出时关闭连接池及后台清理线程
+                    HttpClientUtil closing = instance;
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        try {
+                            closing.close();
+                        } catch (IOException e) {
+                            log.warn("关闭HttpClient失败:{}", e.getMessage());
+                        }
+                    }, "http-client-close"));
+                }
+            }
+        }
+        return instance;
+    }
 }
@@ -0,0 +1,70 @@
+package com.sky.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法id生成器
+ * 64位id = 1位符号位(0) + 41位时间戳(毫秒，相对于EPOCH) + 10位节点id + 12位序列号
+ * 时间戳和序列号保存在同一个AtomicLong中，通过CAS无锁更新，同一节点生成的id严格递增：
+ * 同一毫秒内序列号用完时向下一毫秒借用，时钟回拨时沿用上一次的时间戳继续递增，都不会阻塞等待
+ * 注意：借用序列号或时钟回拨后，已生成的id中的时间戳会超前于系统时间，这个状态只保存在内存中，
+ * 如果此时重启节点，重启后会从当前系统时间重新开始，可能生成与重启前相同的id；
+ * 因此重启前后需要间隔超过可能超前的时间，或在重启时更换节点id
+ */
+public class SnowflakeIdUtil {
+
+    //起始时间 2024-01-01 00:00:00 (UTC+8)
+    private static final long EPOCH = 1704038400000L;
+
+    private static final int WORKER_ID_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    public static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = WORKER_ID_BITS + SEQUENCE_BITS;
+
+    private final long workerId;
+
+    //高位为上一次使用的时间戳，低12位为序列号
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * @param workerId 节点id，取值0~1023，多个节点部署时必须互不相同
+     */
+    public SnowflakeIdUtil(long workerId) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId必须在0到" + MAX_WORKER_ID + "之间: " + workerId);
+        }
+        this.workerId = workerId;
+    }
+
+    /**
+     * 生成下一个id
+     *
+     * @return
+     */
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            //进入新的毫秒时序列号从0开始，否则在上一次的基础上加一（序列号溢出时自然进位到时间戳）
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT) | (workerId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 生成下一个id的字符串形式
+     *
+     * @return
+     */
+    public String nextIdStr() {
+        return String.valueOf(nextId());
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+}
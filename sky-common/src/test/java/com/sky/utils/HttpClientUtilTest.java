@@ -0,0 +1,161 @@
+package com.sky.utils;
+
+import com.alibaba.fastjson.JSONObject;
+import com.sky.properties.HttpClientProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 使用本地的桩服务器测试HttpClientUtil
+ */
+class HttpClientUtilTest {
+
+    //读取响应的超时时间(毫秒)
+    private static final int SOCKET_TIMEOUT = 300;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private HttpClientUtil httpClientUtil;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        //返回请求的查询参数
+        server.createContext("/get", exchange -> respond(exchange, 200, exchange.getRequestURI().getRawQuery()));
+        //返回请求的数据类型和请求体
+        server.createContext("/post", exchange ->
+                respond(exchange, 200, exchange.getRequestHeaders().getFirst("Content-Type") + "|" + readBody(exchange)));
+        server.createContext("/error", exchange -> respond(exchange, 500, "error"));
+        //超过读取超时时间后才响应
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(SOCKET_TIMEOUT * 5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "slow");
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+
+        HttpClientProperties httpClientProperties = new HttpClientProperties();
+        httpClientProperties.setSocketTimeout(SOCKET_TIMEOUT);
+        httpClientUtil = new HttpClientUtil(httpClientProperties);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        httpClientUtil.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    /**
+     * GET请求的参数拼接到地址中，返回响应内容
+     */
+    @Test
+    void getSendsQueryParameters() {
+        Map<String, String> paramMap = new LinkedHashMap<>();
+        paramMap.put("appid", "wx1");
+        paramMap.put("js_code", "a b");
+
+        assertEquals("appid=wx1&js_code=a+b", httpClientUtil.get(baseUrl + "/get", paramMap));
+        assertEquals(1L, httpClientUtil.getMetrics().get("requests"));
+        assertEquals(0L, httpClientUtil.getMetrics().get("failed"));
+    }
+
+    /**
+     * POST请求的参数以表单格式提交
+     */
+    @Test
+    void postSendsFormBody() throws IOException {
+        Map<String, String> paramMap = new LinkedHashMap<>();
+        paramMap.put("name", "张三");
+        paramMap.put("age", "18");
+
+        String result = httpClientUtil.post(baseUrl + "/post", paramMap);
+        assertEquals("application/x-www-form-urlencoded; charset=UTF-8|name=%E5%BC%A0%E4%B8%89&age=18", result);
+    }
+
+    /**
+     * POST请求的参数以json格式提交
+     */
+    @Test
+    void postJsonSendsJsonBody() throws IOException {
+        Map<String, String> paramMap = new LinkedHashMap<>();
+        paramMap.put("name", "张三");
+
+        String[] result = httpClientUtil.postJson(baseUrl + "/post", paramMap).split("\\|", 2);
+        assertTrue(result[0].startsWith("application/json"));
+        assertEquals("张三", JSONObject.parseObject(result[1]).getString("name"));
+    }
+
+    /**
+     * 响应状态不是200时，GET请求返回空字符串，POST请求仍返回响应内容
+     */
+    @Test
+    void nonOkResponse() throws IOException {
+        assertEquals("", httpClientUtil.get(baseUrl + "/error", null));
+        assertEquals("error", httpClientUtil.post(baseUrl + "/error", null));
+        //响应内容读取完后连接可以继续使用
+        assertEquals("a=1", httpClientUtil.get(baseUrl + "/get", Collections.singletonMap("a", "1")));
+    }
+
+    /**
+     * 超过配置的读取超时时间后请求失败，GET请求返回空字符串，POST请求抛出异常
+     */
+    @Test
+    void socketTimeoutFromProperties() {
+        long start = System.nanoTime();
+        assertEquals("", httpClientUtil.get(baseUrl + "/slow", null));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(millis < SOCKET_TIMEOUT * 5, "请求应在读取超时后返回，实际耗时" + millis + "毫秒");
+
+        assertThrows(SocketTimeoutException.class, () -> httpClientUtil.post(baseUrl + "/slow", null));
+        assertEquals(2L, httpClientUtil.getMetrics().get("failed"));
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = (body == null ? "" : body).getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.sky.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdUtilTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 100_000;
+
+    /**
+     * 多个线程同时从同一个实例获取id，所有id互不相同，且每个线程获取到的id严格递增
+     */
+    @Test
+    void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        SnowflakeIdUtil snowflakeIdUtil = new SnowflakeIdUtil(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                Callable<long[]> task = () -> {
+                    start.await();
+                    long[] ids = new long[IDS_PER_THREAD];
+                    for (int j = 0; j < IDS_PER_THREAD; j++) {
+                        ids[j] = snowflakeIdUtil.nextId();
+                    }
+                    return ids;
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+
+            Set<Long> allIds = new HashSet<>(THREADS * IDS_PER_THREAD * 2);
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get(60, TimeUnit.SECONDS);
+                for (int j = 0; j < ids.length; j++) {
+                    assertTrue(ids[j] > 0, "id必须为正数");
+                    if (j > 0) {
+                        assertTrue(ids[j] > ids[j - 1], "同一线程获取的id必须递增");
+                    }
+                    allIds.add(ids[j]);
+                }
+            }
+            assertEquals(THREADS * IDS_PER_THREAD, allIds.size(), "id不能重复");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 节点id写入id的第12~21位
+     */
+    @Test
+    void workerIdIsEncoded() {
+        SnowflakeIdUtil snowflakeIdUtil = new SnowflakeIdUtil(SnowflakeIdUtil.MAX_WORKER_ID);
+        long id = snowflakeIdUtil.nextId();
+        assertEquals(SnowflakeIdUtil.MAX_WORKER_ID, (id >>> 12) & SnowflakeIdUtil.MAX_WORKER_ID);
+        assertEquals(SnowflakeIdUtil.MAX_WORKER_ID, snowflakeIdUtil.getWorkerId());
+    }
+
+    /**
+     * 节点id超出0~1023时拒绝创建
+     */
+    @Test
+    void workerIdOutOfRangeIsRejected() {
+        new SnowflakeIdUtil(0);
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdUtil(-1));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdUtil(SnowflakeIdUtil.MAX_WORKER_ID + 1));
+    }
+}
@@ -0,0 +1,23 @@
+package com.sky.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DateRangeDTO implements Serializable {
+
+    //开始日期
+    private LocalDate begin;
+
+    //结束日期
+    private LocalDate end;
+
+}
@@ -1,31 +1,39 @@
 package com.sky.aspect;
 
-import ch.qos.logback.core.encoder.EchoEncoder;
 import com.sky.annotation.AutoFill;
 import com.sky.constant.AutoFillConstant;
 import com.sky.context.BaseContext;
 import com.sky.enumeration.OperationType;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
 
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.time.LocalDateTime;
-import java.util.prefs.BackingStoreException;
 
 /**
  * 自定义切面，实现公共字段自动填充处理逻辑
+ * 每个实体类的4个setter只在第一次填充时查找一次，转换为MethodHandle后按类缓存
  */
 @Aspect
 @Component
 @Slf4j
 public class AutoFillAspect {
 
+    //按实体类缓存公共字段的setter
+    private static final ClassValue<Setters> SETTERS = new ClassValue<Setters>() {
+        @Override
+        protected Setters computeValue(Class<?> type) {
+            return new Setters(type);
+        }
+    };
+
     /**
      * 切入点
      * 拦截的方法的返回值包括所有
@@ -44,7 +52,7 @@ public class AutoFillAspect {
      */
     @Before("autoFillPointCut()")
     public void autoFill(JoinPoint joinPoint){
-        log.info("开始进行公共字段自动填充...");
+        log.debug("开始进行公共字段自动填充...");
 
         //获取到当前被拦截的方法上的数据库操作类型
         MethodSignature signature = (MethodSignature) joinPoint.getSignature(); //方法签名对象
@@ -53,7 +61,7 @@ public class AutoFillAspect {
 
         //获取到当前被拦截的方法的参数 -- 实体对象
         Object[] args = joinPoint.getArgs();
-        if(args == null || args.length == 0)
+        if(args == null || args.length == 0 || args[0] == null)
         {
             return;
         }
@@ -62,35 +70,76 @@ public class AutoFillAspect {
         LocalDateTime now = LocalDateTime.now();
         Long currentId = BaseContext.getCurrentId();
 
-        //根据当前不同的操作类型,为对应的属性通过反射来赋值
-        if(operationType == OperationType.INSERT){
-            //为4个公共字段赋值
-            try {
-                Method setCreateTime = entity.getClass().getDeclaredMethod("setCreateTime", LocalDateTime.class);
-                Method setCreateUser = entity.getClass().getDeclaredMethod("setCreateUser", Long.class);
-                Method setUpdateTime = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
-                Method setUpdateUser = entity.getClass().getDeclaredMethod(AutoFillConstant.SET_UPDATE_USER, Long.class);
-
-                //通过反射为对象属性赋值
-                setCreateTime.invoke(entity, now);
-                setCreateUser.invoke(entity, currentId);
-                setUpdateTime.invoke(entity, now);
-                setUpdateUser.invoke(entity, currentId);
-            } catch (Exception e) {
-                e.printStackTrace();
+        //根据当前不同的操作类型,通过缓存的setter为对应的属性赋值
+        Setters setters = SETTERS.get(entity.getClass());
+        try {
+            if(operationType == OperationType.INSERT){
+                //为4个公共字段赋值
+                setters.setCreateTime(entity, now);
+                setters.setCreateUser(entity, currentId);
+                setters.setUpdateTime(entity, now);
+                setters.setUpdateUser(entity, currentId);
+            }else if(operationType == OperationType.UPDATE){
+                //为2个公共字段赋值
+                setters.setUpdateTime(entity, now);
+                setters.setUpdateUser(entity, currentId);
             }
-        }else if(operationType == OperationType.UPDATE){
-            //为2个公共字段赋值
-            try {
+        } catch (Throwable e) {
+            log.error("公共字段自动填充失败:{}", entity.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * 一个实体类的公共字段setter，实体类中不存在的setter为null，填充时跳过
+     */
+    private static class Setters {
+        //统一转换为(Object, Object)void类型，调用时不需要再做类型适配
+        private static final MethodType GENERIC_SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+        private final MethodHandle setCreateTime;
+        private final MethodHandle setCreateUser;
+        private final MethodHandle setUpdateTime;
+        private final MethodHandle setUpdateUser;
+
+        Setters(Class<?> type) {
+            setCreateTime = find(type, AutoFillConstant.SET_CREATE_TIME, LocalDateTime.class);
+            setCreateUser = find(type, AutoFillConstant.SET_CREATE_USER, Long.class);
+            setUpdateTime = find(type, AutoFillConstant.SET_UPDATE_TIME, LocalDateTime.class);
+            setUpdateUser = find(type, AutoFillConstant.SET_UPDATE_USER, Long.class);
+        }
 
-                Method setUpdateTime = entity.getClass().getDeclaredMethod("setUpdateTime", LocalDateTime.class);
-                Method setUpdateUser = entity.getClass().getDeclaredMethod("setUpdateUser", Long.class);
+        void setCreateTime(Object entity, LocalDateTime value) throws Throwable {
+            if (setCreateTime != null) {
+                setCreateTime.invokeExact(entity, (Object) value);
+            }
+        }
+
+        void setCreateUser(Object entity, Long value) throws Throwable {
+            if (setCreateUser != null) {
+                setCreateUser.invokeExact(entity, (Object) value);
+            }
+        }
+
+        void setUpdateTime(Object entity, LocalDateTime value) throws Throwable {
+            if (setUpdateTime != null) {
+                setUpdateTime.invokeExact(entity, (Object) value);
+            }
+        }
+
+        void setUpdateUser(Object entity, Long value) throws Throwable {
+            if (setUpdateUser != null) {
+                setUpdateUser.invokeExact(entity, (Object) value);
+            }
+        }
 
-                //通过反射为对象属性赋值
-                setUpdateTime.invoke(entity, now);
-                setUpdateUser.invoke(entity, currentId);
-            } catch (Exception e) {
-                e.printStackTrace();
+        private static MethodHandle find(Class<?> type, String name, Class<?> parameterType) {
+            try {
+                return MethodHandles.publicLookup()
+                        .findVirtual(type, name, MethodType.methodType(void.class, parameterType))
+                        .asType(GENERIC_SETTER);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                log.warn("实体类{}中没有公共的{}方法，自动填充时跳过", type.getName(), name);
+                return null;
             }
         }
     }
@@ -0,0 +1,183 @@
+package com.sky.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * 两级缓存：一级为本地Caffeine缓存，二级为Redis
+ * 读取时依次查询本地缓存、Redis，都未命中再查询数据库；
+ * 删除时同时删除两级缓存，并通知其他节点删除各自的本地缓存；
+ * Redis key中带有版本号：name::版本号::key，清空缓存时只需要递增版本号，旧版本的key不再被访问，过期后由Redis删除，
+ * 避免使用KEYS命令遍历所有key
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    //版本号在本地的缓存时间(毫秒)，错过其他节点的失效通知时最多在这段时间后读取到新版本号
+    private static final long GENERATION_REFRESH_MILLIS = 5000;
+
+    private final String name;
+    //本地缓存的key统一使用字符串，与Redis key和失效消息中的key保持一致
+    private final Cache<String, Object> localCache;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Duration redisTtl;
+    private final TwoLevelCacheManager cacheManager;
+
+    //当前版本号及读取时间
+    private volatile long generation;
+    private volatile long generationLoadTime;
+
+    public TwoLevelCache(String name, Cache<String, Object> localCache, RedisTemplate<String, Object> redisTemplate,
+                         StringRedisTemplate stringRedisTemplate, Duration redisTtl, TwoLevelCacheManager cacheManager) {
+        super(true);
+        this.name = name;
+        this.localCache = localCache;
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisTtl = redisTtl;
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return localCache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = localKey(key);
+        //先检查版本号，错过其他节点的清空通知时最多在版本号的缓存时间后清空本地缓存
+        long generation = generation();
+        Object value = localCache.getIfPresent(localKey);
+        if (value != null) {
+            return value;
+        }
+        value = getFromRedis(redisKey(localKey, generation));
+        if (value != null) {
+            localCache.put(localKey, value);
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        //版本号在加载函数外获取，版本号变化时会清空本地缓存
+        String redisKey = redisKey(localKey);
+        //同一个key在本节点上只加载一次
+        Object value = localCache.get(localKey, k -> {
+            Object storeValue = getFromRedis(redisKey);
+            if (storeValue == null) {
+                try {
+                    storeValue = toStoreValue(valueLoader.call());
+                } catch (Exception e) {
+                    throw new ValueRetrievalException(key, valueLoader, e);
+                }
+                redisTemplate.opsForValue().set(redisKey, storeValue, redisTtl);
+            }
+            return storeValue;
+        });
+        return (T) fromStoreValue(value);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String localKey = localKey(key);
+        Object storeValue = toStoreValue(value);
+        redisTemplate.opsForValue().set(redisKey(localKey), storeValue, redisTtl);
+        localCache.put(localKey, storeValue);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String localKey = localKey(key);
+        redisTemplate.delete(redisKey(localKey));
+        localCache.invalidate(localKey);
+        cacheManager.publishEvict(name, localKey);
+    }
+
+    @Override
+    public void clear() {
+        Long next = stringRedisTemplate.opsForValue().increment(generationKey());
+        generation = next == null ? 0 : next;
+        generationLoadTime = System.currentTimeMillis();
+        localCache.invalidateAll();
+        cacheManager.publishEvict(name, null);
+    }
+
+    /**
+     * 收到其他节点的失效消息后只删除本地缓存
+     * @param key 为null时删除全部
+     */
+    void evictLocal(String key) {
+        if (key == null) {
+            //下次访问时重新读取版本号
+            generationLoadTime = 0;
+            localCache.invalidateAll();
+        } else {
+            localCache.invalidate(key);
+        }
+    }
+
+    /**
+     * 读取Redis缓存，无法反序列化的数据（如切换序列化方式前写入的数据）视为未命中，重新加载后覆盖
+     * @param redisKey
+     * @return
+     */
+    private Object getFromRedis(String redisKey) {
+        try {
+            return redisTemplate.opsForValue().get(redisKey);
+        } catch (SerializationException e) {
+            log.warn("缓存{}反序列化失败，按未命中处理:{}", redisKey, e.getMessage());
+            return null;
+        }
+    }
+
+    private String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    private String redisKey(String localKey) {
+        return redisKey(localKey, generation());
+    }
+
+    private String redisKey(String localKey, long generation) {
+        return name + "::" + generation + "::" + localKey;
+    }
+
+    private String generationKey() {
+        return name + "::generation";
+    }
+
+    /**
+     * 获取当前版本号，超过缓存时间后从Redis重新读取，版本号变化说明其他节点清空过缓存，同时清空本地缓存
+     * @return
+     */
+    private long generation() {
+        long now = System.currentTimeMillis();
+        if (now - generationLoadTime > GENERATION_REFRESH_MILLIS) {
+            String value = stringRedisTemplate.opsForValue().get(generationKey());
+            long current = value == null ? 0 : Long.parseLong(value);
+            if (current != generation) {
+                generation = current;
+                localCache.invalidateAll();
+            }
+            generationLoadTime = now;
+        }
+        return generation;
+    }
+}
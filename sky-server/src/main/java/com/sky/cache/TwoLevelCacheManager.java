@@ -0,0 +1,95 @@
+package com.sky.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.properties.CacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 两级缓存管理器，按缓存名称创建TwoLevelCache
+ * 缓存删除时通过Redis频道通知其他节点删除本地缓存，收到消息时忽略本节点发出的消息
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    //本地缓存失效通知的Redis频道
+    public static final String CHANNEL = "sky:cache:evict";
+
+    //区分消息来源的节点标识
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, TwoLevelCache> cacheMap = new ConcurrentHashMap<>();
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CacheProperties cacheProperties;
+
+    public TwoLevelCacheManager(RedisTemplate<String, Object> redisTemplate, StringRedisTemplate stringRedisTemplate,
+                                CacheProperties cacheProperties) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.cacheProperties = cacheProperties;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return cacheMap.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(cacheMap.keySet());
+    }
+
+    /**
+     * 通知其他节点删除本地缓存
+     * @param name
+     * @param key 为null时删除全部
+     */
+    void publishEvict(String name, String key) {
+        JSONObject message = new JSONObject();
+        message.put("node", nodeId);
+        message.put("name", name);
+        message.put("key", key);
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, message.toJSONString());
+        } catch (Exception e) {
+            //其他节点的本地缓存会在过期后自动失效
+            log.error("缓存失效通知发送失败:{}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        JSONObject body = JSON.parseObject(new String(message.getBody(), StandardCharsets.UTF_8));
+        if (body == null || nodeId.equals(body.getString("node"))) {
+            return;
+        }
+        TwoLevelCache cache = cacheMap.get(body.getString("name"));
+        if (cache != null) {
+            cache.evictLocal(body.getString("key"));
+        }
+    }
+
+    private TwoLevelCache createCache(String name) {
+        com.github.benmanes.caffeine.cache.Cache<String, Object> localCache = Caffeine.newBuilder()
+                .maximumSize(cacheProperties.getLocalMaximumSize())
+                .expireAfterWrite(Duration.ofSeconds(cacheProperties.getLocalTtl()))
+                .build();
+        return new TwoLevelCache(name, localCache, redisTemplate, stringRedisTemplate,
+                Duration.ofSeconds(cacheProperties.getRedisTtl()), this);
+    }
+}
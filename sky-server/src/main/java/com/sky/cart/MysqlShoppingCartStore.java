@@ -0,0 +1,71 @@
+package com.sky.cart;
+
+import com.sky.entity.ShoppingCart;
+import com.sky.mapper.ShoppingCartMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 基于shopping_cart表的购物车存储
+ */
+@Component
+@ConditionalOnProperty(prefix = "sky.shopping-cart", name = "store", havingValue = "mysql", matchIfMissing = true)
+public class MysqlShoppingCartStore implements ShoppingCartStore {
+
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+
+    @Override
+    public List<ShoppingCart> list(Long userId) {
+        ShoppingCart shoppingCart = new ShoppingCart();
+        shoppingCart.setUserId(userId);
+        return shoppingCartMapper.list(shoppingCart);
+    }
+
+    @Override
+    public boolean increase(ShoppingCart shoppingCart) {
+        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
+        if (list == null || list.isEmpty()) {
+            return false;
+        }
+        ShoppingCart cart = list.get(0);
+        cart.setNumber(cart.getNumber() + 1);
+        shoppingCartMapper.updateNumberById(cart);
+        return true;
+    }
+
+    @Override
+    public void decrease(ShoppingCart shoppingCart) {
+        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
+        if (list == null || list.isEmpty()) {
+            return;
+        }
+        ShoppingCart cart = list.get(0);
+        if (cart.getNumber() <= 1) {
+            //当前商品在购物车中的份数为1，直接删除当前记录
+            shoppingCartMapper.deleteById(cart.getId());
+        } else {
+            //当前商品在购物车中的份数不为1，修改份数即可
+            cart.setNumber(cart.getNumber() - 1);
+            shoppingCartMapper.updateNumberById(cart);
+        }
+    }
+
+    @Override
+    public void insert(ShoppingCart shoppingCart) {
+        shoppingCartMapper.insert(shoppingCart);
+    }
+
+    @Override
+    public void insertBatch(List<ShoppingCart> shoppingCartList) {
+        shoppingCartMapper.insertBatch(shoppingCartList);
+    }
+
+    @Override
+    public void clean(Long userId) {
+        shoppingCartMapper.clean(userId);
+    }
+}
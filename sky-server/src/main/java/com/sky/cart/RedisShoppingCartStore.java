@@ -0,0 +1,142 @@
+package com.sky.cart;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.entity.ShoppingCart;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redis的购物车存储
+ * 每个用户一个hash，key为 shopping_cart_用户id，每件商品在hash中占两个字段：
+ * number:商品标识 -> 数量，item:商品标识 -> 商品信息json
+ * 商品标识：菜品为 dish_菜品id_口味，套餐为 setmeal_套餐id；
+ * 每次修改购物车时重新设置过期时间，长时间未修改的购物车由Redis删除
+ */
+@Component
+@ConditionalOnProperty(prefix = "sky.shopping-cart", name = "store", havingValue = "redis")
+public class RedisShoppingCartStore implements ShoppingCartStore {
+
+    private static final String KEY_PREFIX = "shopping_cart_";
+    private static final String NUMBER_FIELD = "number:";
+    private static final String ITEM_FIELD = "item:";
+    //购物车的过期时间(秒)
+    private static final String TTL_SECONDS = String.valueOf(TimeUnit.DAYS.toSeconds(7));
+
+    /**
+     * 商品已存在时数量加一并返回1，不存在时返回0，最后一个参数为过期时间
+     */
+    private static final RedisScript<Long> INCREASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then return 0 end " +
+            "redis.call('hincrby', KEYS[1], ARGV[1], 1) redis.call('expire', KEYS[1], ARGV[2]) return 1", Long.class);
+
+    /**
+     * 商品数量减一，减到0时删除商品的两个字段，最后一个参数为过期时间
+     */
+    private static final RedisScript<Long> DECREASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then return 0 end " +
+            "local number = redis.call('hincrby', KEYS[1], ARGV[1], -1) " +
+            "if number <= 0 then redis.call('hdel', KEYS[1], ARGV[1], ARGV[2]) end " +
+            "redis.call('expire', KEYS[1], ARGV[3]) return number", Long.class);
+
+    /**
+     * 写入商品信息并增加数量，两次并发的新增会累加数量，最后一个参数为过期时间
+     */
+    private static final RedisScript<Long> INSERT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('hset', KEYS[1], ARGV[2], ARGV[3]) " +
+            "local number = redis.call('hincrby', KEYS[1], ARGV[1], ARGV[4]) " +
+            "redis.call('expire', KEYS[1], ARGV[5]) return number", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Override
+    public List<ShoppingCart> list(Long userId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(getKey(userId));
+        List<ShoppingCart> list = new ArrayList<>(entries.size() / 2);
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String field = (String) entry.getKey();
+            if (!field.startsWith(ITEM_FIELD)) {
+                continue;
+            }
+            Object number = entries.get(NUMBER_FIELD + field.substring(ITEM_FIELD.length()));
+            if (number == null || Integer.parseInt((String) number) <= 0) {
+                continue;
+            }
+            ShoppingCart shoppingCart = JSON.parseObject((String) entry.getValue(), ShoppingCart.class);
+            shoppingCart.setNumber(Integer.valueOf((String) number));
+            list.add(shoppingCart);
+        }
+        //按加入购物车的时间排序
+        list.sort(Comparator.comparing(ShoppingCart::getCreateTime, Comparator.nullsLast(Comparator.naturalOrder())));
+        return list;
+    }
+
+    @Override
+    public boolean increase(ShoppingCart shoppingCart) {
+        String itemKey = getItemKey(shoppingCart);
+        Long result = stringRedisTemplate.execute(INCREASE_SCRIPT,
+                Collections.singletonList(getKey(shoppingCart.getUserId())), NUMBER_FIELD + itemKey, TTL_SECONDS);
+        return result != null && result > 0;
+    }
+
+    @Override
+    public void decrease(ShoppingCart shoppingCart) {
+        String itemKey = getItemKey(shoppingCart);
+        stringRedisTemplate.execute(DECREASE_SCRIPT,
+                Collections.singletonList(getKey(shoppingCart.getUserId())), NUMBER_FIELD + itemKey, ITEM_FIELD + itemKey, TTL_SECONDS);
+    }
+
+    @Override
+    public void insert(ShoppingCart shoppingCart) {
+        String itemKey = getItemKey(shoppingCart);
+        //数量单独存放在number字段中，商品信息中不保存数量
+        ShoppingCart item = ShoppingCart.builder()
+                .name(shoppingCart.getName())
+                .userId(shoppingCart.getUserId())
+                .dishId(shoppingCart.getDishId())
+                .setmealId(shoppingCart.getSetmealId())
+                .dishFlavor(shoppingCart.getDishFlavor())
+                .amount(shoppingCart.getAmount())
+                .image(shoppingCart.getImage())
+                .createTime(shoppingCart.getCreateTime())
+                .build();
+        stringRedisTemplate.execute(INSERT_SCRIPT,
+                Collections.singletonList(getKey(shoppingCart.getUserId())),
+                NUMBER_FIELD + itemKey, ITEM_FIELD + itemKey, JSON.toJSONString(item), String.valueOf(shoppingCart.getNumber()), TTL_SECONDS);
+    }
+
+    @Override
+    public void insertBatch(List<ShoppingCart> shoppingCartList) {
+        for (ShoppingCart shoppingCart : shoppingCartList) {
+            insert(shoppingCart);
+        }
+    }
+
+    @Override
+    public void clean(Long userId) {
+        stringRedisTemplate.delete(getKey(userId));
+    }
+
+    private String getKey(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private String getItemKey(ShoppingCart shoppingCart) {
+        if (shoppingCart.getDishId() != null) {
+            String dishFlavor = shoppingCart.getDishFlavor() == null ? "" : shoppingCart.getDishFlavor();
+            return "dish_" + shoppingCart.getDishId() + "_" + dishFlavor;
+        }
+        return "setmeal_" + shoppingCart.getSetmealId();
+    }
+}
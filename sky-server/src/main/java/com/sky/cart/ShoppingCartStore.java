@@ -0,0 +1,51 @@
+package com.sky.cart;
+
+import com.sky.entity.ShoppingCart;
+
+import java.util.List;
+
+/**
+ * 购物车存储
+ * 默认使用shopping_cart表（sky.shopping-cart.store=mysql），配置为redis时使用Redis存储；
+ * 两种存储之间没有数据迁移，切换后原存储中的购物车不再可见
+ */
+public interface ShoppingCartStore {
+
+    /**
+     * 查询用户购物车中的所有商品
+     * @param userId
+     * @return
+     */
+    List<ShoppingCart> list(Long userId);
+
+    /**
+     * 购物车中已有该商品（菜品+口味 或 套餐）时数量加一
+     * @param shoppingCart 用户id、菜品id、口味、套餐id
+     * @return 商品不存在时返回false
+     */
+    boolean increase(ShoppingCart shoppingCart);
+
+    /**
+     * 购物车中该商品数量减一，减到0时删除该商品
+     * @param shoppingCart 用户id、菜品id、口味、套餐id
+     */
+    void decrease(ShoppingCart shoppingCart);
+
+    /**
+     * 向购物车中新增商品
+     * @param shoppingCart
+     */
+    void insert(ShoppingCart shoppingCart);
+
+    /**
+     * 批量向购物车中新增商品
+     * @param shoppingCartList
+     */
+    void insertBatch(List<ShoppingCart> shoppingCartList);
+
+    /**
+     * 清空用户购物车
+     * @param userId
+     */
+    void clean(Long userId);
+}
@@ -0,0 +1,23 @@
+package com.sky.config;
+
+import com.sky.cache.TwoLevelCacheManager;
+import com.sky.properties.CacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 配置类，用于创建两级缓存管理器，@Cacheable等缓存注解都通过它读写缓存
+ */
+@Configuration
+@Slf4j
+public class CacheConfiguration {
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisTemplate redisTemplate, StringRedisTemplate stringRedisTemplate,
+                                             CacheProperties cacheProperties){
+        log.info("开始创建两级缓存管理器:{}", cacheProperties);
+        return new TwoLevelCacheManager(redisTemplate, stringRedisTemplate, cacheProperties);
+    }
+}
@@ -0,0 +1,22 @@
+package com.sky.config;
+
+import com.sky.properties.HttpClientProperties;
+import com.sky.utils.HttpClientUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+    配置类，用于创建带连接池的Http工具类对象
+ */
+@Configuration
+@Slf4j
+public class HttpClientConfiguration {
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public HttpClientUtil httpClientUtil(HttpClientProperties httpClientProperties){
+        log.info("开始创建Http工具类对象:{}", httpClientProperties);
+        return new HttpClientUtil(httpClientProperties);
+    }
+}
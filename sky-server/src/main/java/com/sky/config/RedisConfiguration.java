@@ -1,25 +1,89 @@
 package com.sky.config;
 
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.sky.cache.TwoLevelCacheManager;
+import com.sky.json.JacksonObjectMapper;
+import com.sky.properties.RedisSerializationProperties;
+import com.sky.service.ShopService;
+import com.sky.websocket.WebSocketEventBus;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.nio.charset.StandardCharsets;
+
 @Configuration
 @Slf4j
 public class RedisConfiguration {
     @Bean
-    public RedisTemplate redisTemplate(RedisConnectionFactory redisConnectionFactory){ //Springboot会自动创建RedisConnectionFactory对象
-        log.info("开始创建redis模版对象");
+    public RedisTemplate redisTemplate(RedisConnectionFactory redisConnectionFactory,
+                                       RedisSerializationProperties redisSerializationProperties){ //Springboot会自动创建RedisConnectionFactory对象
+        log.info("开始创建redis模版对象:{}", redisSerializationProperties);
         RedisTemplate redisTemplate = new RedisTemplate();
         //设置redis的链接工厂对象
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         //设置redis key的序列化器
         redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        //设置redis value的序列化器
+        RedisSerializer<Object> valueSerializer = valueSerializer(redisSerializationProperties.getValueSerializer());
+        redisTemplate.setValueSerializer(valueSerializer);
+        redisTemplate.setHashValueSerializer(valueSerializer);
         return redisTemplate;
     }
-}
 
+    /**
+     * 创建value序列化器
+     * json格式体积更小、类结构变化后仍能读取，写入时带上类型信息，读取时还原为原来的类型
+     * @param type json 或 jdk
+     * @return
+     */
+    public static RedisSerializer<Object> valueSerializer(String type){
+        if ("jdk".equals(type)) {
+            return new JdkSerializationRedisSerializer();
+        }
+        ObjectMapper objectMapper = new JacksonObjectMapper();
+        objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        //缓存空值时使用的NullValue
+        GenericJackson2JsonRedisSerializer.registerNullValueSerializer(objectMapper, null);
+        return new GenericJackson2JsonRedisSerializer(objectMapper);
+    }
+
+    /**
+     * Redis消息监听容器，用于接收其他节点发布的消息
+     * @param redisConnectionFactory
+     * @param webSocketEventBus
+     * @param cacheManager
+     * @param shopService
+     * @return
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       WebSocketEventBus webSocketEventBus,
+                                                                       TwoLevelCacheManager cacheManager,
+                                                                       ShopService shopService){
+        log.info("开始创建redis消息监听容器");
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        //订阅WebSocket订单消息频道
+        container.addMessageListener(webSocketEventBus, new ChannelTopic(WebSocketEventBus.CHANNEL));
+        //订阅本地缓存失效通知频道
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.CHANNEL));
+        //订阅店铺营业状态变更频道
+        container.addMessageListener((message, pattern) ->
+                shopService.onStatusMessage(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(ShopService.CHANNEL));
+        return container;
+    }
+}
 
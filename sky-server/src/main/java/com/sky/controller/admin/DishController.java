@@ -10,9 +10,14 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -24,7 +29,7 @@ public class DishController {
     @Autowired
     private DishService dishService;
     @Autowired
-    private RedisTemplate redisTemplate;
+    private CacheManager cacheManager;
     /**
      * 新增菜品
      *
@@ -33,14 +38,10 @@ public class DishController {
      */
     @PostMapping
     @ApiOperation("新增菜品")
+    @CacheEvict(cacheNames = "dishCache", key = "#dishDTO.categoryId") //清理该分类的缓存数据
     public Result save(@RequestBody DishDTO dishDTO) {
         log.info("新增菜品:{}", dishDTO);
         dishService.saveWithFlavor(dishDTO);
-
-        //清理缓存数据
-        String key = "dish_" + dishDTO.getCategoryId();
-        redisTemplate.delete(key);
-
         return Result.success();
     }
 
@@ -63,10 +64,10 @@ public class DishController {
     @ApiOperation("菜品批量删除")
     public Result delete(@RequestParam List<Long> ids) {
         log.info("菜品批量删除:{}", ids);
+        //删除前查询菜品所属的分类
+        List<Long> categoryIds = dishService.getCategoryIds(ids);
         dishService.deleteBatch(ids);
-        //将所有的菜品缓存数据清理掉,删除所有以dish_开头的key
-        Set keys = redisTemplate.keys("dish_*"); //获取所有的以dish_为开头的key
-        redisTemplate.delete(keys); //删除所有的key
+        cleanCache(categoryIds);
         return Result.success();
     }
 
@@ -94,12 +95,11 @@ public class DishController {
     @ApiOperation("修改菜品")
     public Result update(@RequestBody DishDTO dishDTO) {
         log.info("修改菜品:{}", dishDTO);
+        //菜品可能修改了分类，原分类和新分类的缓存都需要清理
+        Set<Long> categoryIds = new HashSet<>(dishService.getCategoryIds(Collections.singletonList(dishDTO.getId())));
+        categoryIds.add(dishDTO.getCategoryId());
         dishService.updateWithFlavor(dishDTO);
-
-        //将所有的菜品缓存数据清理掉,删除所有以dish_开头的key
-        Set keys = redisTemplate.keys("dish_*"); //获取所有的以dish_为开头的key
-        redisTemplate.delete(keys); //删除所有的key
-
+        cleanCache(categoryIds);
         return Result.success();
     }
 
@@ -125,11 +125,20 @@ public class DishController {
     public Result startOrStop(@PathVariable Integer status, @RequestParam Long id) {
         log.info("菜品状态:{}; 菜品id：{}", status, id);
         dishService.startOrStop(status, id);
-
-        //将所有的菜品缓存数据清理掉,删除所有以dish_开头的key
-        Set keys = redisTemplate.keys("dish_*"); //获取所有的以dish_为开头的key
-        redisTemplate.delete(keys); //删除所有的key
-
+        cleanCache(dishService.getCategoryIds(Collections.singletonList(id)));
         return Result.success();
     }
+
+    /**
+     * 清理指定分类的菜品缓存数据
+     * @param categoryIds
+     */
+    private void cleanCache(Collection<Long> categoryIds) {
+        Cache cache = cacheManager.getCache("dishCache");
+        for (Long categoryId : categoryIds) {
+            if (categoryId != null) {
+                cache.evict(categoryId);
+            }
+        }
+    }
 }
@@ -1,8 +1,10 @@
 package com.sky.controller.admin;
 
 import com.sky.result.Result;
+import com.sky.service.ReportExportService;
 import com.sky.service.ReportService;
 import com.sky.vo.OrderReportVO;
+import com.sky.vo.ReportExportJobVO;
 import com.sky.vo.SalesTop10ReportVO;
 import com.sky.vo.TurnoverReportVO;
 import com.sky.vo.UserReportVO;
@@ -12,6 +14,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -25,6 +29,8 @@ import java.time.LocalDate;
 public class ReportController {
     @Autowired
     private ReportService reportService;
+    @Autowired
+    private ReportExportService reportExportService;
 
     @GetMapping("/turnoverStatistics")
     @ApiOperation("营业额统计")
@@ -68,11 +74,50 @@ public class ReportController {
 
     /**
      * 导出运营数据报表
+     * @param begin 开始日期，默认为30天前
+     * @param end 结束日期，默认为昨天
      * @param response
      */
     @GetMapping("/export")
     @ApiOperation("导出运营数据报表")
-    public void export(HttpServletResponse response){
-        reportService.exportBusinessData(response);
+    public void export(@DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin, @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+                       HttpServletResponse response){
+        log.info("导出运营数据报表:{}到{}", begin, end);
+        reportService.exportBusinessData(begin, end, response);
+    }
+
+    /**
+     * 提交运营数据报表导出任务，导出完成后通过任务id下载
+     * @param begin 开始日期，默认为30天前
+     * @param end 结束日期，默认为昨天
+     * @return
+     */
+    @PostMapping("/export/jobs")
+    @ApiOperation("提交运营数据报表导出任务")
+    public Result<ReportExportJobVO> submitExport(@DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin, @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end){
+        log.info("提交运营数据报表导出任务:{}到{}", begin, end);
+        return Result.success(reportExportService.submit(begin, end));
+    }
+
+    /**
+     * 查询导出任务状态
+     * @param jobId
+     * @return
+     */
+    @GetMapping("/export/jobs/{jobId}")
+    @ApiOperation("查询运营数据报表导出任务")
+    public Result<ReportExportJobVO> getExportJob(@PathVariable String jobId){
+        return Result.success(reportExportService.getJob(jobId));
+    }
+
+    /**
+     * 下载导出文件
+     * @param jobId
+     * @param response
+     */
+    @GetMapping("/export/jobs/{jobId}/file")
+    @ApiOperation("下载运营数据报表导出文件")
+    public void downloadExport(@PathVariable String jobId, HttpServletResponse response){
+        reportExportService.download(jobId, response);
     }
 }
@@ -1,11 +1,11 @@
 package com.sky.controller.user;
 
 import com.sky.result.Result;
+import com.sky.service.ShopService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.*;
 
 @RestController("userShopController") //因为admin里面也有一个ShopController 所以要给这个bean一个新的名字
@@ -13,10 +13,9 @@ import org.springframework.web.bind.annotation.*;
 @Api(tags = "店铺相关接口")
 @Slf4j
 public class ShopController {
-    public static final String KEY = "SHOP_STATUS";
 
     @Autowired
-    private RedisTemplate redisTemplate;
+    private ShopService shopService;
 
     /**
      * 获取店铺营业状态
@@ -25,8 +24,8 @@ public class ShopController {
     @GetMapping("/status")
     @ApiOperation("获取店铺的营业状态")
     public Result<Integer> getStatus() {
-        Integer status = (Integer) redisTemplate.opsForValue().get(KEY);
-        log.info("获取到店铺的营业状态为:{}", status == 1 ? "营业中" : "打烊中");
+        Integer status = shopService.getStatus();
+        log.debug("获取到店铺的营业状态为:{}", status == 1 ? "营业中" : "打烊中");
         return Result.success(status);
     }
 }
@@ -0,0 +1,15 @@
+package com.sky.converter;
+
+import org.mapstruct.Builder;
+import org.mapstruct.MapperConfig;
+import org.mapstruct.ReportingPolicy;
+
+/**
+ * 对象转换器的公共配置
+ * 与BeanUtils.copyProperties保持一致：通过无参构造和setter赋值，只复制名称相同的属性，目标对象中多出的属性不赋值
+ */
+@MapperConfig(componentModel = "spring",
+        builder = @Builder(disableBuilder = true),
+        unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface ConverterConfig {
+}
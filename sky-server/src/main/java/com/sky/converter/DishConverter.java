@@ -0,0 +1,22 @@
+package com.sky.converter;
+
+import com.sky.entity.Dish;
+import com.sky.vo.DishVO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * 菜品相关的对象转换，实现类在编译期生成
+ */
+@Mapper(config = ConverterConfig.class)
+public interface DishConverter {
+
+    /**
+     * 菜品转换为菜品视图，口味由调用方设置
+     * @param dish
+     * @return
+     */
+    @Mapping(target = "flavors", ignore = true)
+    @Mapping(target = "categoryName", ignore = true)
+    DishVO toDishVO(Dish dish);
+}
@@ -0,0 +1,51 @@
+package com.sky.converter;
+
+import com.sky.dto.OrdersSubmitDTO;
+import com.sky.entity.OrderDetail;
+import com.sky.entity.Orders;
+import com.sky.entity.ShoppingCart;
+import com.sky.vo.OrderVO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * 订单相关的对象转换，实现类在编译期生成
+ */
+@Mapper(config = ConverterConfig.class)
+public interface OrderConverter {
+
+    /**
+     * 用户提交的订单数据转换为订单
+     * @param ordersSubmitDTO
+     * @return
+     */
+    Orders toOrders(OrdersSubmitDTO ordersSubmitDTO);
+
+    /**
+     * 购物车商品转换为订单明细，订单明细的id由数据库生成，订单id在订单插入后设置
+     * @param shoppingCart
+     * @return
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "orderId", ignore = true)
+    OrderDetail toOrderDetail(ShoppingCart shoppingCart);
+
+    /**
+     * 订单明细转换为购物车商品，用于再来一单，用户id和加入时间由调用方设置
+     * @param orderDetail
+     * @return
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "userId", ignore = true)
+    @Mapping(target = "createTime", ignore = true)
+    ShoppingCart toShoppingCart(OrderDetail orderDetail);
+
+    /**
+     * 订单转换为订单视图，菜品信息和订单明细由调用方设置
+     * @param orders
+     * @return
+     */
+    @Mapping(target = "orderDishes", ignore = true)
+    @Mapping(target = "orderDetailList", ignore = true)
+    OrderVO toOrderVO(Orders orders);
+}
@@ -0,0 +1,143 @@
+package com.sky.interceptor;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 已校验通过的jwt令牌缓存
+ * 令牌首次出现时校验签名并解析出id，之后同一令牌的请求直接读取缓存，不再重新计算签名；
+ * 缓存的key为令牌的SHA-256摘要，内存中不保存原始令牌；缓存在令牌过期时失效，没有过期时间的令牌不缓存；
+ * 校验失败的令牌不缓存，每次都会重新校验
+ */
+public class JwtClaimsCache {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final String secretKey;
+    private final String claimName;
+    private final Cache<String, CachedClaims> cache;
+
+    //校验统计
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder hitNanos = new LongAdder();
+    private final LongAdder missNanos = new LongAdder();
+
+    /**
+     * @param secretKey jwt秘钥
+     * @param claimName 令牌中保存id的声明名称
+     * @param maximumSize 最多缓存的令牌数
+     */
+    public JwtClaimsCache(String secretKey, String claimName, long maximumSize) {
+        this.secretKey = secretKey;
+        this.claimName = claimName;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, CachedClaims>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedClaims value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, value.expireAtMillis - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedClaims value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedClaims value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 校验令牌并返回其中的id
+     * @param token
+     * @return
+     * @throws RuntimeException 令牌为空、签名错误或已过期
+     */
+    public Long verify(String token) {
+        long start = System.nanoTime();
+        if (token == null || token.isEmpty()) {
+            rejectedCount.increment();
+            throw new IllegalArgumentException("jwt令牌为空");
+        }
+
+        String key = digest(token);
+        CachedClaims cached = cache.getIfPresent(key);
+        if (cached != null && cached.expireAtMillis > System.currentTimeMillis()) {
+            hitCount.increment();
+            hitNanos.add(System.nanoTime() - start);
+            return cached.id;
+        }
+
+        try {
+            Claims claims = JwtUtil.parseJWT(secretKey, token);
+            Long id = Long.valueOf(claims.get(claimName).toString());
+            Date expiration = claims.getExpiration();
+            if (expiration != null) {
+                cache.put(key, new CachedClaims(id, expiration.getTime()));
+            }
+            missCount.increment();
+            missNanos.add(System.nanoTime() - start);
+            return id;
+        } catch (RuntimeException e) {
+            rejectedCount.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * 校验统计：命中数、未命中数、拒绝数、命中和未命中时的平均耗时(微秒)及缓存的令牌数
+     * @return
+     */
+    public Map<String, Number> getMetrics() {
+        long hits = hitCount.sum();
+        long misses = missCount.sum();
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("hits", hits);
+        metrics.put("misses", misses);
+        metrics.put("rejected", rejectedCount.sum());
+        metrics.put("avgHitMicros", hits == 0 ? 0.0 : hitNanos.sum() / 1e3 / hits);
+        metrics.put("avgMissMicros", misses == 0 ? 0.0 : missNanos.sum() / 1e3 / misses);
+        metrics.put("size", cache.estimatedSize());
+        return metrics;
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    private static class CachedClaims {
+        private final Long id;
+        private final long expireAtMillis;
+
+        CachedClaims(Long id, long expireAtMillis) {
+            this.id = id;
+            this.expireAtMillis = expireAtMillis;
+        }
+    }
+}
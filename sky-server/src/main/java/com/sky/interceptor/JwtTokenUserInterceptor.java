@@ -3,16 +3,16 @@ package com.sky.interceptor;
 import com.sky.constant.JwtClaimsConstant;
 import com.sky.context.BaseContext;
 import com.sky.properties.JwtProperties;
-import com.sky.utils.JwtUtil;
-import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
 
 /**
  * jwt令牌校验的拦截器
@@ -24,6 +24,21 @@ public class JwtTokenUserInterceptor implements HandlerInterceptor {
     @Autowired
     private JwtProperties jwtProperties;
 
+    private JwtClaimsCache claimsCache;
+
+    @PostConstruct
+    public void init() {
+        claimsCache = new JwtClaimsCache(jwtProperties.getUserSecretKey(), JwtClaimsConstant.USER_ID, jwtProperties.getTokenCacheSize());
+    }
+
+    /**
+     * 令牌校验统计
+     * @return
+     */
+    public Map<String, Number> getMetrics() {
+        return claimsCache.getMetrics();
+    }
+
     /**
      * 校验jwt
      *
@@ -35,7 +50,6 @@ public class JwtTokenUserInterceptor implements HandlerInterceptor {
      */
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
 
-
         //判断当前拦截到的是Controller的方法还是其他资源
         if (!(handler instanceof HandlerMethod)) {
             //当前拦截到的不是动态方法，直接放行
@@ -47,10 +61,9 @@ public class JwtTokenUserInterceptor implements HandlerInterceptor {
 
         //2、校验令牌
         try {
-            log.info("jwt校验:{}", token);
-            Claims claims = JwtUtil.parseJWT(jwtProperties.getUserSecretKey(), token);
-            Long userID = Long.valueOf(claims.get(JwtClaimsConstant.USER_ID).toString());
-            log.info("当前员工id：{}", userID);
+            //同一令牌只在首次出现时校验签名，不输出令牌内容
+            Long userID = claimsCache.verify(token);
+            log.debug("当前用户id：{}", userID);
             //存入线程的存储空间
             BaseContext.setCurrentId(userID);
             //3、通过，放行
@@ -0,0 +1,49 @@
+package com.sky.mapper;
+
+import com.sky.dto.DailyStatisticsDTO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Mapper
+public interface DailyBusinessStatsMapper {
+
+    /**
+     * 查询日期区间内（包含两端）已汇总的营业数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    @Select("select stat_date date, turnover, order_count orderCount, valid_order_count validOrderCount, new_users newUsers " +
+            "from daily_business_stats where stat_date between #{begin} and #{end}")
+    List<DailyStatisticsDTO> listByDate(LocalDate begin, LocalDate end);
+
+    /**
+     * 批量写入每天的汇总数据，日期已存在时保留已有数据
+     * @param statisticsList
+     */
+    void insertBatch(List<DailyStatisticsDTO> statisticsList);
+
+    /**
+     * 订单完成或撤销完成时，增量修改对应日期的有效订单数和营业额
+     * @param date
+     * @param validOrderCount
+     * @param turnover
+     * @return 修改的行数，对应日期还没有汇总时为0
+     */
+    @Update("update daily_business_stats set valid_order_count = valid_order_count + #{validOrderCount}, " +
+            "turnover = turnover + #{turnover}, update_time = now() where stat_date = #{date}")
+    int updateValidOrder(LocalDate date, Integer validOrderCount, BigDecimal turnover);
+
+    /**
+     * 对应日期还没有汇总时写入重新统计的数据，已有汇总时增量修改有效订单数和营业额
+     * @param ds 重新统计的当天数据
+     * @param validOrderCount
+     * @param turnover
+     */
+    void upsertValidOrder(DailyStatisticsDTO ds, Integer validOrderCount, BigDecimal turnover);
+}
@@ -5,6 +5,7 @@ import com.sky.annotation.AutoFill;
 import com.sky.dto.DishPageQueryDTO;
 import com.sky.entity.Dish;
 import com.sky.enumeration.OperationType;
+import com.sky.vo.DishOverViewVO;
 import com.sky.vo.DishVO;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
@@ -50,10 +51,23 @@ public interface DishMapper {
      */
     void deleteByIds(List<Long> ids);
 
+    /**
+     * 查询菜品所属的分类id，结果去重
+     * @param ids
+     * @return
+     */
+    List<Long> getCategoryIdsByIds(List<Long> ids);
+
     @AutoFill(value = OperationType.UPDATE)
     void update(Dish dish);
 
     List<Dish> list(Dish dish);
 
     Integer countByMap(Map map);
+
+    /**
+     * 统计起售和停售的菜品数量，一次查询返回一行
+     * @return
+     */
+    DishOverViewVO getOverView();
 }
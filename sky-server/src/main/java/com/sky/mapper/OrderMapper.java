@@ -1,9 +1,12 @@
 package com.sky.mapper;
 
 import com.github.pagehelper.Page;
+import com.sky.dto.DailyStatisticsDTO;
 import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.OrderStatusCountDTO;
 import com.sky.dto.OrdersPageQueryDTO;
 import com.sky.entity.Orders;
+import com.sky.vo.OrderOverViewVO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
@@ -57,6 +60,13 @@ public interface OrderMapper {
     @Select("select count(id) from orders where status = #{status}")
     Integer countStatus(Integer toBeConfirmed);
 
+    /**
+     * 按状态分组统计订单数量
+     * @return
+     */
+    @Select("select status, count(id) count from orders group by status")
+    List<OrderStatusCountDTO> countGroupByStatus();
+
     /**
      * 根据订单状态和下单时间查询订单
      * @param status
@@ -66,9 +76,63 @@ public interface OrderMapper {
     @Select("select * from orders where status = #{status} and order_time < #{orderTime}")
     List<Orders> getByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime);
 
+    /**
+     * 按id顺序查询一批指定状态、下单时间早于指定时间的订单并加锁，只查询修改状态需要的字段
+     * @param status
+     * @param orderTime
+     * @param lastId 上一批最后一个订单的id
+     * @param limit 每批数量
+     * @return
+     */
+    @Select("select id, status, order_time, amount from orders where status = #{status} and order_time < #{orderTime} " +
+            "and id > #{lastId} order by id limit #{limit} for update")
+    List<Orders> getBatchByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime, Long lastId, Integer limit);
+
+    /**
+     * 按id顺序查询一批指定状态的订单，只查询id和下单时间
+     * @param status
+     * @param lastId 上一批最后一个订单的id
+     * @param limit 每批数量
+     * @return
+     */
+    @Select("select id, order_time from orders where status = #{status} and id > #{lastId} order by id limit #{limit}")
+    List<Orders> getBatchByStatus(Integer status, Long lastId, Integer limit);
+
+    /**
+     * 批量修改订单状态，只修改仍处于原状态的订单
+     * @param ids
+     * @param fromStatus 原状态
+     * @param orders 修改后的状态及取消原因等信息
+     * @return 修改的订单数
+     */
+    int updateStatusBatch(List<Long> ids, Integer fromStatus, Orders orders);
+
     Double sumByMap(Map map);
 
     Integer countByMap(Map map);
 
     List<GoodsSalesDTO> getSalesTop10(LocalDateTime beginTime, LocalDateTime endTime);
+
+    /**
+     * 按下单日期分组统计订单总数、有效订单数和营业额
+     * @param begin
+     * @param end
+     * @return 没有订单的日期不会出现在结果中
+     */
+    List<DailyStatisticsDTO> getDailyStatistics(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 统计时间段内的订单总数、有效订单数、营业额和新增用户数，一次查询返回一行
+     * @param begin
+     * @param end
+     * @return 结果中没有日期
+     */
+    DailyStatisticsDTO getBusinessStatistics(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 统计指定时间之后下单的各状态订单数量，一次查询返回一行
+     * @param begin
+     * @return
+     */
+    OrderOverViewVO getOrderOverView(LocalDateTime begin);
 }
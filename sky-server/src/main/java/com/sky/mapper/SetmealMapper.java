@@ -6,6 +6,7 @@ import com.sky.dto.SetmealPageQueryDTO;
 import com.sky.entity.Setmeal;
 import com.sky.enumeration.OperationType;
 import com.sky.vo.DishItemVO;
+import com.sky.vo.SetmealOverViewVO;
 import com.sky.vo.SetmealVO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
@@ -72,4 +73,10 @@ public interface SetmealMapper {
     void updateStatus(Integer status, Integer id);
 
     Integer countByMap(Map map);
+
+    /**
+     * 统计起售和停售的套餐数量，一次查询返回一行
+     * @return
+     */
+    SetmealOverViewVO getOverView();
 }
@@ -1,9 +1,12 @@
 package com.sky.mapper;
 
+import com.sky.dto.DailyStatisticsDTO;
 import com.sky.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @Mapper
@@ -26,4 +29,12 @@ public interface UserMapper {
     User getById(Long userId);
 
     Integer countByMap(Map map);
+
+    /**
+     * 按注册日期分组统计新增用户数
+     * @param begin 包含
+     * @param end 不包含
+     * @return 没有新增用户的日期不会出现在结果中
+     */
+    List<DailyStatisticsDTO> getDailyNewUsers(LocalDateTime begin, LocalDateTime end);
 }
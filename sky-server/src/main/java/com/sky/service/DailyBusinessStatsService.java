@@ -0,0 +1,40 @@
+package com.sky.service;
+
+import com.sky.dto.DailyStatisticsDTO;
+import com.sky.entity.Orders;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public interface DailyBusinessStatsService {
+
+    /**
+     * 查询日期区间内（包含两端）每天的营业数据，没有数据的日期补0
+     * 返回的对象可能来自缓存，调用方不能修改
+     * @param begin
+     * @param end
+     * @return
+     */
+    List<DailyStatisticsDTO> listDailyStatistics(LocalDate begin, LocalDate end);
+
+    /**
+     * 订单状态变更后增量维护汇总数据
+     * @param ordersDB 状态变更前的订单
+     * @param status 变更后的状态
+     */
+    void onStatusChange(Orders ordersDB, Integer status);
+
+    /**
+     * 一批订单状态变更后增量维护汇总数据，同一天的订单合并为一次更新
+     * @param ordersList 状态变更前的订单
+     * @param status 变更后的状态
+     */
+    void onStatusChange(List<Orders> ordersList, Integer status);
+
+    /**
+     * 缓存统计
+     * @return
+     */
+    Map<String, Number> getCacheMetrics();
+}
@@ -59,4 +59,11 @@ public interface DishService {
      * @param id
      */
     void startOrStop(Integer status, Long id);
+
+    /**
+     * 查询菜品所属的分类id
+     * @param ids
+     * @return
+     */
+    List<Long> getCategoryIds(List<Long> ids);
 }
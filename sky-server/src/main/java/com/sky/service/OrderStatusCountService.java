@@ -0,0 +1,31 @@
+package com.sky.service;
+
+public interface OrderStatusCountService {
+
+    /**
+     * 订单状态变更后调整各状态的订单数量
+     * @param from 变更前的状态，新建订单时为null
+     * @param to 变更后的状态
+     */
+    void onStatusChange(Integer from, Integer to);
+
+    /**
+     * 一批订单状态变更后调整各状态的订单数量
+     * @param from 变更前的状态
+     * @param to 变更后的状态
+     * @param count 变更的订单数
+     */
+    void onStatusChange(Integer from, Integer to, int count);
+
+    /**
+     * 查询某个状态的订单数量
+     * @param status
+     * @return
+     */
+    Integer getCount(Integer status);
+
+    /**
+     * 根据订单表重新统计各状态的订单数量
+     */
+    void reconcile();
+}
@@ -1,11 +1,14 @@
 package com.sky.service;
 
+import com.sky.dto.DateRangeDTO;
 import com.sky.vo.OrderReportVO;
 import com.sky.vo.SalesTop10ReportVO;
 import com.sky.vo.TurnoverReportVO;
 import com.sky.vo.UserReportVO;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 
 public interface ReportService {
@@ -41,9 +44,28 @@ public interface ReportService {
      */
     SalesTop10ReportVO getSalesTop10(LocalDate begin, LocalDate end);
 
+    /**
+     * 补全并校验运营数据报表的日期区间，开始日期晚于结束日期时抛出异常
+     * @param begin 开始日期，为空时默认为30天前
+     * @param end 结束日期，为空时默认为昨天
+     * @return 补全后的日期区间
+     */
+    DateRangeDTO resolveExportRange(LocalDate begin, LocalDate end);
+
     /**
      * 导出运营数据报表
+     * @param begin 开始日期，为空时默认为30天前
+     * @param end 结束日期，为空时默认为昨天
      * @param response
      */
-    void exportBusinessData(HttpServletResponse response);
+    void exportBusinessData(LocalDate begin, LocalDate end, HttpServletResponse response);
+
+    /**
+     * 导出运营数据报表到输出流
+     * @param begin 开始日期，为空时默认为30天前
+     * @param end 结束日期，为空时默认为昨天
+     * @param out
+     * @throws IOException
+     */
+    void exportBusinessData(LocalDate begin, LocalDate end, OutputStream out) throws IOException;
 }
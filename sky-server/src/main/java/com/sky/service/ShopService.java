@@ -0,0 +1,25 @@
+package com.sky.service;
+
+public interface ShopService {
+
+    //营业状态变更通知的Redis频道
+    String CHANNEL = "sky:shop:status";
+
+    /**
+     * 设置店铺营业状态
+     * @param status 1 营业中 0 打烊中
+     */
+    void setStatus(Integer status);
+
+    /**
+     * 获取店铺营业状态
+     * @return
+     */
+    Integer getStatus();
+
+    /**
+     * 收到其他节点的营业状态变更通知后更新本节点的状态
+     * @param message 通知内容，即新的营业状态
+     */
+    void onStatusMessage(String message);
+}
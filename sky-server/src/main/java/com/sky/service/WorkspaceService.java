@@ -33,12 +33,4 @@ public interface WorkspaceService {
      * @return
      */
     SetmealOverViewVO getSetmealOverView();
-
-    /**
-     * 根据时间段统计营业额数据
-     * @param of
-     * @param of1
-     * @return
-     */
-    BusinessDataVO getBusinessDate(LocalDateTime of, LocalDateTime of1);
 }
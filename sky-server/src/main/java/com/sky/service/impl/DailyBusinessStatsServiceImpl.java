@@ -0,0 +1,335 @@
+package com.sky.service.impl;
+
+import com.sky.dto.DailyStatisticsDTO;
+import com.sky.entity.Orders;
+import com.sky.mapper.DailyBusinessStatsMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.UserMapper;
+import com.sky.service.DailyBusinessStatsService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每日营业数据汇总
+ * 已经结束的日期从daily_business_stats汇总表读取，首次查询到缺失的日期时从订单表补算并写入汇总表；
+ * 当天的数据仍在变化，直接查询订单表；
+ * 查询结果缓存在本地：已经结束的日期只在订单状态变更时变化，本节点变更的事务提交后删除缓存，
+ * 其他节点的变更最多在缓存过期后可见；当天的数据只缓存几秒
+ */
+@Service
+@Slf4j
+public class DailyBusinessStatsServiceImpl implements DailyBusinessStatsService {
+
+    //已经结束的日期最多缓存的天数和缓存时间(分钟)
+    private static final int CLOSED_DAY_CACHE_SIZE = 1000;
+    private static final long CLOSED_DAY_TTL_MINUTES = 60;
+    //当天数据的缓存时间(秒)
+    private static final long LIVE_DAY_TTL_SECONDS = 10;
+
+    @Autowired
+    private DailyBusinessStatsMapper dailyBusinessStatsMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private UserMapper userMapper;
+
+    //已经结束的日期的缓存
+    private final Cache<LocalDate, DailyStatisticsDTO> closedDayCache = Caffeine.newBuilder()
+            .maximumSize(CLOSED_DAY_CACHE_SIZE)
+            .expireAfterWrite(Duration.ofMinutes(CLOSED_DAY_TTL_MINUTES))
+            .recordStats()
+            .build();
+    //当天的缓存
+    private final Cache<LocalDate, DailyStatisticsDTO> liveDayCache = Caffeine.newBuilder()
+            .maximumSize(2)
+            .expireAfterWrite(Duration.ofSeconds(LIVE_DAY_TTL_SECONDS))
+            .recordStats()
+            .build();
+
+    /**
+     * 查询日期区间内（包含两端）每天的营业数据，没有数据的日期补0
+     * @param begin
+     * @param end
+     * @return
+     */
+    @Override
+    public List<DailyStatisticsDTO> listDailyStatistics(LocalDate begin, LocalDate end) {
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, DailyStatisticsDTO> statisticsMap = new HashMap<>();
+
+        //已经结束的日期：先读本地缓存，未命中的日期读取汇总表，汇总表中缺失的日期从订单表补算
+        LocalDate closedEnd = end.isBefore(today) ? end : today.minusDays(1);
+        if (!begin.isAfter(closedEnd)) {
+            List<LocalDate> dates = new ArrayList<>();
+            for (LocalDate date = begin; !date.isAfter(closedEnd); date = date.plusDays(1)) {
+                dates.add(date);
+            }
+            statisticsMap.putAll(closedDayCache.getAllPresent(dates));
+
+            //找出第一个和最后一个未命中的日期，只查询这段区间
+            LocalDate first = null;
+            LocalDate last = null;
+            for (LocalDate date : dates) {
+                if (!statisticsMap.containsKey(date)) {
+                    if (first == null) {
+                        first = date;
+                    }
+                    last = date;
+                }
+            }
+            if (first != null) {
+                Map<LocalDate, DailyStatisticsDTO> loaded = new HashMap<>();
+                for (DailyStatisticsDTO statistics : dailyBusinessStatsMapper.listByDate(first, last)) {
+                    loaded.put(statistics.getDate(), statistics);
+                }
+                loaded.putAll(rollup(first, last, loaded));
+                closedDayCache.putAll(loaded);
+                statisticsMap.putAll(loaded);
+            }
+        }
+
+        //当天：数据仍在变化，查询订单表后只缓存很短的时间
+        if (!today.isBefore(begin) && !today.isAfter(end)) {
+            statisticsMap.put(today, liveDayCache.get(today, this::aggregateLiveDay));
+        }
+
+        List<DailyStatisticsDTO> list = new ArrayList<>();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            DailyStatisticsDTO statistics = statisticsMap.get(date);
+            list.add(statistics == null ? empty(date) : statistics);
+        }
+        return list;
+    }
+
+    /**
+     * 订单状态变更后增量维护汇总数据
+     * 营业额和有效订单数只与"已完成"状态有关，订单总数在下单后不再变化
+     * @param ordersDB 状态变更前的订单
+     * @param status 变更后的状态
+     */
+    @Override
+    public void onStatusChange(Orders ordersDB, Integer status) {
+        boolean wasCompleted = Orders.COMPLETED.equals(ordersDB.getStatus());
+        boolean isCompleted = Orders.COMPLETED.equals(status);
+        if (wasCompleted == isCompleted || ordersDB.getOrderTime() == null) {
+            return;
+        }
+
+        //当天的订单还未汇总，查询时会直接统计订单表
+        LocalDate date = ordersDB.getOrderTime().toLocalDate();
+        if (!date.isBefore(LocalDate.now())) {
+            return;
+        }
+
+        BigDecimal amount = ordersDB.getAmount() == null ? BigDecimal.ZERO : ordersDB.getAmount();
+        if (isCompleted) {
+            updateValidOrder(date, 1, amount);
+        } else {
+            updateValidOrder(date, -1, amount.negate());
+        }
+        invalidateAfterCommit(date);
+    }
+
+    /**
+     * 一批订单状态变更后增量维护汇总数据，同一天的订单合并为一次更新
+     * @param ordersList 状态变更前的订单
+     * @param status 变更后的状态
+     */
+    @Override
+    public void onStatusChange(List<Orders> ordersList, Integer status) {
+        boolean isCompleted = Orders.COMPLETED.equals(status);
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, Integer> countMap = new HashMap<>();
+        Map<LocalDate, BigDecimal> amountMap = new HashMap<>();
+        for (Orders ordersDB : ordersList) {
+            boolean wasCompleted = Orders.COMPLETED.equals(ordersDB.getStatus());
+            if (wasCompleted == isCompleted || ordersDB.getOrderTime() == null) {
+                continue;
+            }
+            LocalDate date = ordersDB.getOrderTime().toLocalDate();
+            if (!date.isBefore(today)) {
+                continue;
+            }
+            BigDecimal amount = ordersDB.getAmount() == null ? BigDecimal.ZERO : ordersDB.getAmount();
+            countMap.merge(date, 1, Integer::sum);
+            amountMap.merge(date, amount, BigDecimal::add);
+        }
+
+        countMap.forEach((date, count) -> {
+            BigDecimal amount = amountMap.get(date);
+            if (isCompleted) {
+                updateValidOrder(date, count, amount);
+            } else {
+                updateValidOrder(date, -count, amount.negate());
+            }
+            invalidateAfterCommit(date);
+        });
+    }
+
+    /**
+     * 缓存统计：已结束日期和当天缓存的命中数、未命中数、命中率及已结束日期的缓存天数
+     * @return
+     */
+    @Override
+    public Map<String, Number> getCacheMetrics() {
+        CacheStats closed = closedDayCache.stats();
+        CacheStats live = liveDayCache.stats();
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("closedDayHits", closed.hitCount());
+        metrics.put("closedDayMisses", closed.missCount());
+        metrics.put("closedDayHitRate", closed.hitRate());
+        metrics.put("closedDaySize", closedDayCache.estimatedSize());
+        metrics.put("liveDayHits", live.hitCount());
+        metrics.put("liveDayMisses", live.missCount());
+        metrics.put("liveDayHitRate", live.hitRate());
+        return metrics;
+    }
+
+    /**
+     * 删除已经结束的日期的缓存，在事务中调用时等事务提交后再删除，
+     * 防止提交前其他请求重新读取到旧的汇总数据并缓存
+     * @param date
+     */
+    private void invalidateAfterCommit(LocalDate date) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    closedDayCache.invalidate(date);
+                }
+            });
+        } else {
+            closedDayCache.invalidate(date);
+        }
+    }
+
+    /**
+     * 增量修改一天的有效订单数和营业额，在订单状态更新之后、同一事务中调用
+     * 这一天还没有汇总时，重新统计这一天（能读到本事务中的变更）并写入；
+     * 写入前其他节点可能刚好补算出了这一天，此时改为在其结果上增量修改，避免本次变更丢失
+     * @param date
+     * @param validOrderCount
+     * @param turnover
+     */
+    private void updateValidOrder(LocalDate date, int validOrderCount, BigDecimal turnover) {
+        if (dailyBusinessStatsMapper.updateValidOrder(date, validOrderCount, turnover) > 0) {
+            return;
+        }
+        DailyStatisticsDTO statistics = aggregate(date, date).get(date);
+        if (statistics == null) {
+            statistics = empty(date);
+        }
+        dailyBusinessStatsMapper.upsertValidOrder(statistics, validOrderCount, turnover);
+    }
+
+    /**
+     * 查询当天的营业数据，订单和新增用户一次查询
+     * @param today
+     * @return
+     */
+    private DailyStatisticsDTO aggregateLiveDay(LocalDate today) {
+        DailyStatisticsDTO statistics = orderMapper.getBusinessStatistics(
+                LocalDateTime.of(today, LocalTime.MIN), LocalDateTime.of(today, LocalTime.MAX));
+        statistics.setDate(today);
+        return statistics;
+    }
+
+    /**
+     * 从订单表和用户表补算汇总表中缺失的日期，并写入汇总表
+     * @param begin
+     * @param end
+     * @param existing 汇总表中已有的数据
+     * @return 补算出的数据
+     */
+    private Map<LocalDate, DailyStatisticsDTO> rollup(LocalDate begin, LocalDate end, Map<LocalDate, DailyStatisticsDTO> existing) {
+        //找出第一个和最后一个缺失的日期，只补算这段区间
+        LocalDate first = null;
+        LocalDate last = null;
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            if (!existing.containsKey(date)) {
+                if (first == null) {
+                    first = date;
+                }
+                last = date;
+            }
+        }
+        if (first == null) {
+            return new HashMap<>();
+        }
+
+        log.info("补算每日营业数据汇总:{}至{}", first, last);
+        Map<LocalDate, DailyStatisticsDTO> aggregated = aggregate(first, last);
+        Map<LocalDate, DailyStatisticsDTO> missing = new HashMap<>();
+        for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+            if (!existing.containsKey(date)) {
+                DailyStatisticsDTO statistics = aggregated.get(date);
+                missing.put(date, statistics == null ? empty(date) : statistics);
+            }
+        }
+        dailyBusinessStatsMapper.insertBatch(new ArrayList<>(missing.values()));
+
+        //其他节点或订单状态变更可能已经先写入了部分日期，以汇总表中实际保存的数据为准
+        for (DailyStatisticsDTO statistics : dailyBusinessStatsMapper.listByDate(first, last)) {
+            if (missing.containsKey(statistics.getDate())) {
+                missing.put(statistics.getDate(), statistics);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * 直接从订单表和用户表按天分组统计
+     * @param begin
+     * @param end
+     * @return
+     */
+    private Map<LocalDate, DailyStatisticsDTO> aggregate(LocalDate begin, LocalDate end) {
+        LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
+        LocalDateTime endTime = LocalDateTime.of(end, LocalTime.MAX);
+
+        Map<LocalDate, DailyStatisticsDTO> statisticsMap = new HashMap<>();
+        for (DailyStatisticsDTO statistics : orderMapper.getDailyStatistics(beginTime, endTime)) {
+            statistics.setNewUsers(0);
+            if (statistics.getTurnover() == null) {
+                statistics.setTurnover(0.0);
+            }
+            statisticsMap.put(statistics.getDate(), statistics);
+        }
+        for (DailyStatisticsDTO users : userMapper.getDailyNewUsers(beginTime, endTime)) {
+            DailyStatisticsDTO statistics = statisticsMap.get(users.getDate());
+            if (statistics == null) {
+                statistics = empty(users.getDate());
+                statisticsMap.put(users.getDate(), statistics);
+            }
+            statistics.setNewUsers(users.getNewUsers());
+        }
+        return statisticsMap;
+    }
+
+    private DailyStatisticsDTO empty(LocalDate date) {
+        return DailyStatisticsDTO.builder()
+                .date(date)
+                .turnover(0.0)
+                .orderCount(0)
+                .validOrderCount(0)
+                .newUsers(0)
+                .build();
+    }
+}
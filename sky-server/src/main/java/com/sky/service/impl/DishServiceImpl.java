@@ -4,6 +4,7 @@ import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import com.sky.constant.MessageConstant;
 import com.sky.constant.StatusConstant;
+import com.sky.converter.DishConverter;
 import com.sky.dto.DishDTO;
 import com.sky.dto.DishPageQueryDTO;
 import com.sky.entity.Dish;
@@ -23,6 +24,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -35,6 +38,8 @@ public class DishServiceImpl implements DishService {
 
     @Autowired
     private SetmealDishMapper setmealDishMapper;
+    @Autowired
+    private DishConverter dishConverter;
 
     /**
      * 新增菜品和对应的口味
@@ -124,8 +129,7 @@ public class DishServiceImpl implements DishService {
         List<DishFlavor> dishFlavors = dishFlavorMapper.getByDishId(id);
 
         //将查询到的数据封装到dishVO
-        DishVO dishVO = new DishVO();
-        BeanUtils.copyProperties(dish, dishVO);
+        DishVO dishVO = dishConverter.toDishVO(dish);
         dishVO.setFlavors(dishFlavors);
         return dishVO;
     }
@@ -166,21 +170,7 @@ public class DishServiceImpl implements DishService {
      */
     public List<DishVO> listWithFlavor(Dish dish) {
         List<Dish> dishList = dishMapper.list(dish);
-
-        List<DishVO> dishVOList = new ArrayList<>();
-
-        for (Dish d : dishList) {
-            DishVO dishVO = new DishVO();
-            BeanUtils.copyProperties(d, dishVO);
-
-            //根据菜品id查询对应的口味
-            List<DishFlavor> flavors = dishFlavorMapper.getByDishId(d.getId());
-
-            dishVO.setFlavors(flavors);
-            dishVOList.add(dishVO);
-        }
-
-        return dishVOList;
+        return toDishVOWithFlavor(dishList);
     }
 
 
@@ -189,18 +179,7 @@ public class DishServiceImpl implements DishService {
         Dish dish = new Dish();
         dish.setCategoryId(categoryId);
         List<Dish> dishList = dishMapper.list(dish);
-        List<DishVO> dishVOList = new ArrayList<>();
-        for (Dish d : dishList) {
-            DishVO dishVO = new DishVO();
-            BeanUtils.copyProperties(d, dishVO);
-
-            //根据菜品id查询对应的口味
-            List<DishFlavor> flavors = dishFlavorMapper.getByDishId(d.getId());
-
-            dishVO.setFlavors(flavors);
-            dishVOList.add(dishVO);
-        }
-        return dishVOList;
+        return toDishVOWithFlavor(dishList);
     }
 
     @Override
@@ -212,4 +191,39 @@ public class DishServiceImpl implements DishService {
         dishMapper.update(dish);
 
     }
+
+    /**
+     * 将菜品封装为DishVO，并一次查询出所有菜品对应的口味
+     *
+     * @param dishList
+     * @return
+     */
+    private List<DishVO> toDishVOWithFlavor(List<Dish> dishList) {
+        List<DishVO> dishVOList = new ArrayList<>(dishList.size());
+        if (dishList.isEmpty()) {
+            return dishVOList;
+        }
+
+        //根据菜品id集合查询对应的口味，并按菜品id分组
+        List<Long> dishIds = dishList.stream().map(Dish::getId).collect(Collectors.toList());
+        Map<Long, List<DishFlavor>> flavorMap = dishFlavorMapper.getByDishIds(dishIds).stream()
+                .collect(Collectors.groupingBy(DishFlavor::getDishId));
+
+        for (Dish d : dishList) {
+            DishVO dishVO = dishConverter.toDishVO(d);
+            dishVO.setFlavors(flavorMap.getOrDefault(d.getId(), new ArrayList<>()));
+            dishVOList.add(dishVO);
+        }
+        return dishVOList;
+    }
+
+    /**
+     * 查询菜品所属的分类id
+     * @param ids
+     * @return
+     */
+    @Override
+    public List<Long> getCategoryIds(List<Long> ids) {
+        return dishMapper.getCategoryIdsByIds(ids);
+    }
 }
@@ -1,12 +1,14 @@
 package com.sky.service.impl;
 
-import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import com.github.xiaoymin.knife4j.core.util.CollectionUtils;
+import com.sky.cart.ShoppingCartStore;
 import com.sky.constant.MessageConstant;
+import com.sky.constant.WebSocketConstant;
 import com.sky.context.BaseContext;
+import com.sky.converter.OrderConverter;
 import com.sky.dto.*;
 import com.sky.entity.*;
 import com.sky.exception.AddressBookBusinessException;
@@ -14,13 +16,17 @@ import com.sky.exception.OrderBusinessException;
 import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.mapper.*;
 import com.sky.result.PageResult;
+import com.sky.service.DailyBusinessStatsService;
 import com.sky.service.OrderService;
+import com.sky.service.OrderStatusCountService;
+import com.sky.task.OrderTimeoutQueue;
+import com.sky.utils.SnowflakeIdUtil;
 import com.sky.utils.WeChatPayUtil;
 import com.sky.vo.OrderPaymentVO;
 import com.sky.vo.OrderStatisticsVO;
 import com.sky.vo.OrderSubmitVO;
 import com.sky.vo.OrderVO;
-import com.sky.websocket.WebSocketServer;
+import com.sky.websocket.WebSocketEventBus;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,7 +36,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -46,13 +52,23 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private AddressBookMapper addressBookMapper;
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
+    private ShoppingCartStore shoppingCartStore;
     @Autowired
     private UserMapper userMapper;
     @Autowired
     private WeChatPayUtil weChatPayUtil;
     @Autowired
-    private WebSocketServer webSocketServer;
+    private SnowflakeIdUtil snowflakeIdUtil;
+    @Autowired
+    private WebSocketEventBus webSocketEventBus;
+    @Autowired
+    private DailyBusinessStatsService dailyBusinessStatsService;
+    @Autowired
+    private OrderTimeoutQueue orderTimeoutQueue;
+    @Autowired
+    private OrderStatusCountService orderStatusCountService;
+    @Autowired
+    private OrderConverter orderConverter;
 
     /**
      * 用户下单
@@ -76,38 +92,37 @@ public class OrderServiceImpl implements OrderService {
         }
         //查询当前用户的购物车数据
         Long userId = BaseContext.getCurrentId();
-        ShoppingCart shoppingCart = new ShoppingCart();
-        shoppingCart.setUserId(userId);
-        List<ShoppingCart> shoppingCartList = shoppingCartMapper.list(shoppingCart);
+        List<ShoppingCart> shoppingCartList = shoppingCartStore.list(userId);
         if (shoppingCartList == null || shoppingCartList.size() == 0) {
             //抛出业务异常
             throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_IS_NULL);
         }
         //向订单表插入1条数据
-        Orders orders = new Orders();
-        BeanUtils.copyProperties(ordersSubmitDTO, orders);
+        Orders orders = orderConverter.toOrders(ordersSubmitDTO);
         orders.setOrderTime(LocalDateTime.now());
         orders.setPayStatus(Orders.UN_PAID);
         orders.setStatus(Orders.PENDING_PAYMENT);
-        orders.setNumber(String.valueOf(System.currentTimeMillis()));
+        orders.setNumber(snowflakeIdUtil.nextIdStr());
         orders.setAddress(addressBook.getDetail());
         orders.setPhone(addressBook.getPhone());
         orders.setConsignee(addressBook.getConsignee());
         orders.setUserId(userId);
 
         orderMapper.insert(orders);
+        orderStatusCountService.onStatusChange(null, Orders.PENDING_PAYMENT);
 
         List<OrderDetail> orderDetailList = new ArrayList<>();
         //向订单明细表插入n条数据
         for (ShoppingCart cart : shoppingCartList) {
-            OrderDetail orderDetail = new OrderDetail(); //订单明细
-            BeanUtils.copyProperties(cart, orderDetail);
+            OrderDetail orderDetail = orderConverter.toOrderDetail(cart); //订单明细
             orderDetail.setOrderId(orders.getId()); //设置当前订单明细关联的订单id
             orderDetailList.add(orderDetail);
         }
         orderDetailMapper.insertBatch(orderDetailList);
         //清空当前用户的购物车数据
-        shoppingCartMapper.clean(userId);
+        shoppingCartStore.clean(userId);
+        //加入超时队列，超时未支付自动取消
+        orderTimeoutQueue.add(orders.getId(), orders.getOrderTime());
         //封装vo返回结果
         OrderSubmitVO orderSubmitVO = OrderSubmitVO.builder()
                 .id(orders.getId())
@@ -168,14 +183,12 @@ public class OrderServiceImpl implements OrderService {
                 .build();
 
         orderMapper.update(orders);
+        dailyBusinessStatsService.onStatusChange(ordersDB, Orders.TO_BE_CONFIRMED);
+        orderStatusCountService.onStatusChange(ordersDB.getStatus(), Orders.TO_BE_CONFIRMED);
+        orderTimeoutQueue.remove(ordersDB.getId());
 
-        //通过websocket向客户端浏览器推送消息 type orderId content
-        Map map = new HashMap();
-        map.put("type", 1); //1 表示来单提醒 2 表示客户催单
-        map.put("orderId", ordersDB.getId());
-        map.put("content", "订单号: " + outTradeNo);
-        String json = JSON.toJSONString(map);
-        webSocketServer.sendToAllClient(json); //通过webSocket推送到客户端
+        //通过websocket向所有节点上订阅了来单提醒的客户端浏览器推送消息 type orderId content
+        webSocketEventBus.publish(WebSocketConstant.TYPE_NEW_ORDER, ordersDB.getId(), "订单号: " + outTradeNo);
     }
 
     @Override
@@ -192,13 +205,12 @@ public class OrderServiceImpl implements OrderService {
         List<OrderVO> list = new ArrayList();
         //查询出订单明细，并封装入OrderVO进行响应
         if (page != null && page.getTotal() > 0) {
+            //一次查询出当前页所有订单的明细
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(page);
             for (Orders orders : page) {
-                Long orderId = orders.getId(); //订单id
-                //查询订单明细
-                List<OrderDetail> orderDetails = orderDetailMapper.getByOrderId(orderId);
+                List<OrderDetail> orderDetails = orderDetailMap.getOrDefault(orders.getId(), Collections.emptyList());
 
-                OrderVO orderVO = new OrderVO();
-                BeanUtils.copyProperties(orders, orderVO);
+                OrderVO orderVO = orderConverter.toOrderVO(orders);
                 orderVO.setOrderDetailList(orderDetails);
                 list.add(orderVO);
             }
@@ -210,14 +222,9 @@ public class OrderServiceImpl implements OrderService {
     public OrderVO details(Long id) {
         Orders orders = orderMapper.getOrderById(id);
         List<OrderDetail> orderDetails = orderDetailMapper.getByOrderId(id);
+        String orderDishes = getOrderDishesStr(orderDetails);
 
-        String orderDishes = "";
-        for (OrderDetail orderDetail : orderDetails) {
-            orderDishes = orderDishes + orderDetail.getName() + "*" + orderDetail.getNumber() + ";";
-        }
-
-        OrderVO orderVO = new OrderVO();
-        BeanUtils.copyProperties(orders, orderVO);
+        OrderVO orderVO = orderConverter.toOrderVO(orders);
         orderVO.setOrderDetailList(orderDetails);
         orderVO.setOrderDishes(orderDishes);
         return orderVO;
@@ -229,6 +236,7 @@ public class OrderServiceImpl implements OrderService {
      * @param id
      */
     @Override
+    @Transactional
     public void cancelOrder(Long id) {
         //根据id查询订单
         Orders orders = orderMapper.getOrderById(id);
@@ -254,10 +262,13 @@ public class OrderServiceImpl implements OrderService {
         }
 
         //更新订单状态，取消原因，取消时间
+        dailyBusinessStatsService.onStatusChange(orders, Orders.CANCELLED);
+        orderStatusCountService.onStatusChange(orders.getStatus(), Orders.CANCELLED);
         orders.setStatus(Orders.CANCELLED);
         orders.setCancelTime(LocalDateTime.now());
         orders.setCancelReason("用户取消");
         orderMapper.update(orders);
+        orderTimeoutQueue.remove(id);
     }
 
     @Override
@@ -265,13 +276,12 @@ public class OrderServiceImpl implements OrderService {
         List<OrderDetail> orderDetails = orderDetailMapper.getByOrderId(id);
         List<ShoppingCart> shoppingCartList = new ArrayList<>();
         for (OrderDetail orderDetail : orderDetails) {
-            ShoppingCart shoppingCart = new ShoppingCart();
-            BeanUtils.copyProperties(orderDetail, shoppingCart);
+            ShoppingCart shoppingCart = orderConverter.toShoppingCart(orderDetail);
             shoppingCart.setUserId(BaseContext.getCurrentId());
             shoppingCart.setCreateTime(LocalDateTime.now());
             shoppingCartList.add(shoppingCart);
         }
-        shoppingCartMapper.insertBatch(shoppingCartList);
+        shoppingCartStore.insertBatch(shoppingCartList);
     }
 
     /**
@@ -284,16 +294,14 @@ public class OrderServiceImpl implements OrderService {
         PageHelper.startPage(ordersPageQueryDTO.getPage(), ordersPageQueryDTO.getPageSize());
 
         Page<Orders> page = orderMapper.pageQuery(ordersPageQueryDTO);
-        List<OrderVO> orderVOList = new ArrayList<>();
+        List<OrderVO> orderVOList = new ArrayList<>(page.size());
 
+        //一次查询出当前页所有订单的明细
+        Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(page);
         for (Orders orders : page) {
-            OrderVO orderVO = new OrderVO();
-            List<OrderDetail> orderDetails = orderDetailMapper.getByOrderId(orders.getId());
-            String orderDishes = "";
-            for (OrderDetail orderDetail : orderDetails) {
-                orderDishes = orderDishes + orderDetail.getName() + "*" + orderDetail.getNumber() + ";";
-            }
-            BeanUtils.copyProperties(orders, orderVO);
+            List<OrderDetail> orderDetails = orderDetailMap.getOrDefault(orders.getId(), Collections.emptyList());
+            String orderDishes = getOrderDishesStr(orderDetails);
+            OrderVO orderVO = orderConverter.toOrderVO(orders);
             orderVO.setOrderDishes(orderDishes);
             orderVOList.add(orderVO);
         }
@@ -304,10 +312,10 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public OrderStatisticsVO statistics() {
-        //根据状态，分别查询出待接单、待派送、派送中的订单数量
-        Integer toBeConfirmed = orderMapper.countStatus(Orders.TO_BE_CONFIRMED);
-        Integer confirmed = orderMapper.countStatus(Orders.CONFIRMED);
-        Integer deliveryInProgress = orderMapper.countStatus(Orders.DELIVERY_IN_PROGRESS);
+        //根据状态，分别查询出待接单、待派送、派送中的订单数量，数量由订单状态变更时维护，不再查询订单表
+        Integer toBeConfirmed = orderStatusCountService.getCount(Orders.TO_BE_CONFIRMED);
+        Integer confirmed = orderStatusCountService.getCount(Orders.CONFIRMED);
+        Integer deliveryInProgress = orderStatusCountService.getCount(Orders.DELIVERY_IN_PROGRESS);
 
         //将查询出的数据封装到orderStatisticsVO中响应
         OrderStatisticsVO orderStatisticsVO = new OrderStatisticsVO();
@@ -319,13 +327,21 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public void confirm(OrdersConfirmDTO ordersConfirmDTO) {
+        //查询变更前的状态，用于调整各状态的订单数量
+        Orders ordersDB = orderMapper.getOrderById(ordersConfirmDTO.getId());
+        if (ordersDB == null) {
+            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
+        }
+
         Orders order = new Orders();
         BeanUtils.copyProperties(ordersConfirmDTO, order);
         order.setStatus(Orders.CONFIRMED);
         orderMapper.update(order);
+        orderStatusCountService.onStatusChange(ordersDB.getStatus(), Orders.CONFIRMED);
     }
 
     @Override
+    @Transactional
     public void rejection(OrdersRejectionDTO ordersRejectionDTO) {
         Orders orders = orderMapper.getOrderById(ordersRejectionDTO.getId());
         if (orders == null || orders.getStatus() != Orders.TO_BE_CONFIRMED) {
@@ -353,9 +369,12 @@ public class OrderServiceImpl implements OrderService {
         calledOrder.setCancelReason(ordersRejectionDTO.getRejectionReason());
         calledOrder.setCancelTime(LocalDateTime.now());
         orderMapper.update(calledOrder);
+        dailyBusinessStatsService.onStatusChange(orders, Orders.CANCELLED);
+        orderStatusCountService.onStatusChange(orders.getStatus(), Orders.CANCELLED);
     }
 
     @Override
+    @Transactional
     public void cancel(OrdersCancelDTO ordersCancelDTO) {
         // 根据id查询订单
         Orders ordersDB = orderMapper.getOrderById(ordersCancelDTO.getId());
@@ -380,6 +399,8 @@ public class OrderServiceImpl implements OrderService {
         orders.setCancelReason(ordersCancelDTO.getCancelReason());
         orders.setCancelTime(LocalDateTime.now());
         orderMapper.update(orders);
+        dailyBusinessStatsService.onStatusChange(ordersDB, Orders.CANCELLED);
+        orderStatusCountService.onStatusChange(ordersDB.getStatus(), Orders.CANCELLED);
     }
 
     /**
@@ -402,6 +423,8 @@ public class OrderServiceImpl implements OrderService {
         orders.setStatus(Orders.DELIVERY_IN_PROGRESS);
 
         orderMapper.update(orders);
+        dailyBusinessStatsService.onStatusChange(ordersDB, Orders.DELIVERY_IN_PROGRESS);
+        orderStatusCountService.onStatusChange(ordersDB.getStatus(), Orders.DELIVERY_IN_PROGRESS);
     }
 
     /**
@@ -409,6 +432,7 @@ public class OrderServiceImpl implements OrderService {
      *
      * @param id
      */
+    @Transactional
     public void complete(Long id) {
         // 根据id查询订单
         Orders ordersDB = orderMapper.getOrderById(id);
@@ -425,6 +449,8 @@ public class OrderServiceImpl implements OrderService {
         orders.setDeliveryTime(LocalDateTime.now());
 
         orderMapper.update(orders);
+        dailyBusinessStatsService.onStatusChange(ordersDB, Orders.COMPLETED);
+        orderStatusCountService.onStatusChange(ordersDB.getStatus(), Orders.COMPLETED);
     }
 
     /**
@@ -441,12 +467,37 @@ public class OrderServiceImpl implements OrderService {
             throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
         }
 
-        Map map = new HashMap();
-        map.put("type", 2);
-        map.put("orderId", id);
-        map.put("content", "订单号: " + ordersDB.getNumber());
-        //通过websocket向客户端浏览器推送消息
-        webSocketServer.sendToAllClient(JSON.toJSONString(map));
+        //通过websocket向所有节点上订阅了客户催单的客户端浏览器推送消息
+        webSocketEventBus.publish(WebSocketConstant.TYPE_REMINDER, id, "订单号: " + ordersDB.getNumber());
+    }
+
+    /**
+     * 批量查询订单明细，并按订单id分组
+     *
+     * @param ordersList
+     * @return
+     */
+    private Map<Long, List<OrderDetail>> getOrderDetailMap(List<Orders> ordersList) {
+        if (ordersList.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        return orderDetailMapper.getByOrderIds(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderDetail::getOrderId));
+    }
+
+    /**
+     * 拼接订单菜品信息，格式：宫保鸡丁*3;红烧带鱼*2;
+     *
+     * @param orderDetails
+     * @return
+     */
+    private String getOrderDishesStr(List<OrderDetail> orderDetails) {
+        StringBuilder orderDishes = new StringBuilder(orderDetails.size() * 16);
+        for (OrderDetail orderDetail : orderDetails) {
+            orderDishes.append(orderDetail.getName()).append('*').append(orderDetail.getNumber()).append(';');
+        }
+        return orderDishes.toString();
     }
 
 
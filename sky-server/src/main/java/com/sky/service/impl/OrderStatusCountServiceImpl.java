@@ -0,0 +1,202 @@
+package com.sky.service.impl;
+
+import com.sky.dto.OrderStatusCountDTO;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.service.OrderStatusCountService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 各状态的订单数量
+ * 数量保存在Redis哈希表中（field为订单状态），订单状态变更时原子增减，事务中的变更等事务提交后再调整；
+ * 每个节点在内存中保留一份快照，查询时直接读取快照，快照最多每秒从Redis刷新一次；
+ * 定时根据订单表重新统计，修正状态变更未经过本服务或调整失败造成的偏差：
+ * 统计前先读取Redis中的数量作为快照，统计后只在Redis中的数量仍与快照一致时按差值增减，不覆盖统计期间发生的调整；
+ * 重新统计通过Redis锁只在一个节点上执行
+ */
+@Service
+@Slf4j
+public class OrderStatusCountServiceImpl implements OrderStatusCountService {
+
+    public static final String KEY = "order_status_count";
+    //重新统计的锁，过期前其他节点不再重新统计
+    private static final String RECONCILE_LOCK_KEY = "order_status_count:reconcile_lock";
+    private static final Duration RECONCILE_LOCK_TTL = Duration.ofMinutes(1);
+    //内存快照的刷新间隔(毫秒)
+    private static final long SNAPSHOT_REFRESH_MILLIS = 1000;
+    //全部订单状态，重新统计时没有订单的状态写入0
+    private static final List<Integer> STATUSES = Arrays.asList(Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED,
+            Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS, Orders.COMPLETED, Orders.CANCELLED);
+
+    /**
+     * 参数依次为每个状态的 状态、快照中的数量、差值，所有状态的数量都与快照一致时按差值增减并返回1，否则返回0
+     */
+    private static final RedisScript<Long> CORRECT_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #ARGV, 3 do " +
+            "if tonumber(redis.call('hget', KEYS[1], ARGV[i]) or '0') ~= tonumber(ARGV[i + 1]) then return 0 end end " +
+            "for i = 1, #ARGV, 3 do " +
+            "if ARGV[i + 2] ~= '0' then redis.call('hincrby', KEYS[1], ARGV[i], ARGV[i + 2]) end end " +
+            "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderMapper orderMapper;
+
+    //内存快照及读取时间
+    private volatile Map<Integer, Integer> snapshot = Collections.emptyMap();
+    private volatile long snapshotLoadTime;
+
+    /**
+     * 订单状态变更后调整各状态的订单数量
+     * @param from 变更前的状态，新建订单时为null
+     * @param to 变更后的状态
+     */
+    @Override
+    public void onStatusChange(Integer from, Integer to) {
+        onStatusChange(from, to, 1);
+    }
+
+    /**
+     * 一批订单状态变更后调整各状态的订单数量
+     * @param from 变更前的状态
+     * @param to 变更后的状态
+     * @param count 变更的订单数
+     */
+    @Override
+    public void onStatusChange(Integer from, Integer to, int count) {
+        if (count <= 0 || Objects.equals(from, to)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(from, to, count);
+                }
+            });
+        } else {
+            increment(from, to, count);
+        }
+    }
+
+    /**
+     * 查询某个状态的订单数量
+     * @param status
+     * @return
+     */
+    @Override
+    public Integer getCount(Integer status) {
+        return snapshot().getOrDefault(status, 0);
+    }
+
+    /**
+     * 根据订单表重新统计各状态的订单数量，按差值修正Redis中的数量
+     * 统计期间Redis中的数量发生变化时放弃本次修正，由下一次重新统计处理；
+     * 订单在统计前提交但提交后的调整在修正之后才执行时，仍会多计一次，偏差在下一次重新统计时修正
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 0/5 * * * ?") //每5分钟触发一次
+    public void reconcile() {
+        try {
+            if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(RECONCILE_LOCK_KEY, "1", RECONCILE_LOCK_TTL))) {
+                log.debug("其他节点正在或刚刚重新统计过订单状态数量，跳过");
+                return;
+            }
+
+            Map<Object, Object> before = stringRedisTemplate.opsForHash().entries(KEY);
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (OrderStatusCountDTO statusCount : orderMapper.countGroupByStatus()) {
+                counts.put(statusCount.getStatus(), statusCount.getCount());
+            }
+
+            List<String> args = new ArrayList<>();
+            boolean changed = false;
+            for (Integer status : STATUSES) {
+                Object value = before.get(status.toString());
+                long expected = value == null ? 0 : Long.parseLong(value.toString());
+                long delta = counts.getOrDefault(status, 0) - expected;
+                args.add(status.toString());
+                args.add(Long.toString(expected));
+                args.add(Long.toString(delta));
+                changed |= delta != 0;
+            }
+            if (!changed) {
+                return;
+            }
+            Long corrected = stringRedisTemplate.execute(CORRECT_SCRIPT, Collections.singletonList(KEY), args.toArray());
+            if (corrected != null && corrected == 1) {
+                //下次查询时重新读取
+                snapshotLoadTime = 0;
+                log.info("订单状态数量已修正:{}", counts);
+            } else {
+                log.debug("重新统计期间订单状态数量发生变化，放弃本次修正");
+            }
+        } catch (Exception e) {
+            log.error("订单状态数量重新统计失败", e);
+        }
+    }
+
+    private void increment(Integer from, Integer to, int count) {
+        try {
+            if (from != null) {
+                stringRedisTemplate.opsForHash().increment(KEY, from.toString(), -count);
+            }
+            stringRedisTemplate.opsForHash().increment(KEY, to.toString(), count);
+        } catch (Exception e) {
+            //调整失败时数量会有偏差，由定时的重新统计修正
+            log.error("订单状态数量调整失败:{} -> {}, {}", from, to, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取内存快照，超过刷新间隔后从Redis重新读取，同一时刻只有一个线程读取
+     * @return
+     */
+    private Map<Integer, Integer> snapshot() {
+        if (System.currentTimeMillis() - snapshotLoadTime > SNAPSHOT_REFRESH_MILLIS) {
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                if (now - snapshotLoadTime > SNAPSHOT_REFRESH_MILLIS) {
+                    try {
+                        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(KEY);
+                        if (entries.isEmpty()) {
+                            //Redis中的数据丢失，重新统计
+                            reconcile();
+                            entries = stringRedisTemplate.opsForHash().entries(KEY);
+                        }
+                        Map<Integer, Integer> current = new HashMap<>();
+                        entries.forEach((status, count) ->
+                                current.put(Integer.valueOf(status.toString()), Math.max(0, Integer.parseInt(count.toString()))));
+                        snapshot = current;
+                    } catch (Exception e) {
+                        //读取失败时继续使用旧的快照
+                        log.warn("读取订单状态数量失败:{}", e.getMessage());
+                    }
+                    snapshotLoadTime = now;
+                }
+            }
+        }
+        return snapshot;
+    }
+}
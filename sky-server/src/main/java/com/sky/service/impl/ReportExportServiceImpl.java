@@ -0,0 +1,229 @@
+package com.sky.service.impl;
+
+import com.sky.constant.MessageConstant;
+import com.sky.context.BaseContext;
+import com.sky.dto.DateRangeDTO;
+import com.sky.exception.ReportBusinessException;
+import com.sky.properties.ReportExportProperties;
+import com.sky.service.ReportExportService;
+import com.sky.service.ReportService;
+import com.sky.vo.ReportExportJobVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 运营数据报表异步导出
+ * 导出任务在独立的有界线程池中执行，结果写入本地文件后供下载，不占用处理请求的线程；
+ * 线程池和排队都满时拒绝提交，每个用户同时进行中的任务数也有上限；
+ * 任务只保存在当前节点的内存中，查询和下载需要访问提交任务的节点
+ */
+@Service
+@Slf4j
+public class ReportExportServiceImpl implements ReportExportService {
+
+    @Autowired
+    private ReportService reportService;
+    @Autowired
+    private ReportExportProperties reportExportProperties;
+
+    private final Map<String, ExportJob> jobMap = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private Path dir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        dir = Paths.get(reportExportProperties.getDir());
+        Files.createDirectories(dir);
+        int threads = reportExportProperties.getThreads();
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(reportExportProperties.getQueueCapacity()), r -> {
+                    Thread thread = new Thread(r, "report-export-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交运营数据报表导出任务
+     * @param begin 开始日期，为空时默认为30天前
+     * @param end 结束日期，为空时默认为昨天
+     * @return
+     */
+    @Override
+    public ReportExportJobVO submit(LocalDate begin, LocalDate end) {
+        //与同步导出使用相同的默认值，补全后再校验，错误的日期区间在提交时直接拒绝
+        DateRangeDTO range = reportService.resolveExportRange(begin, end);
+        LocalDate dateBegin = range.getBegin();
+        LocalDate dateEnd = range.getEnd();
+        Long userId = BaseContext.getCurrentId();
+        ExportJob job = new ExportJob(UUID.randomUUID().toString().replace("-", ""), userId, dateBegin, dateEnd);
+
+        //检查进行中的任务数和登记任务需要同时完成
+        synchronized (this) {
+            long running = jobMap.values().stream()
+                    .filter(j -> j.userId.equals(userId) && j.finishTime == null)
+                    .count();
+            if (running >= reportExportProperties.getMaxJobsPerUser()) {
+                throw new ReportBusinessException(MessageConstant.REPORT_EXPORT_TOO_MANY);
+            }
+            jobMap.put(job.jobId, job);
+        }
+
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobMap.remove(job.jobId);
+            throw new ReportBusinessException(MessageConstant.REPORT_EXPORT_BUSY);
+        }
+        log.info("提交报表导出任务:{}, 用户:{}, {}到{}", job.jobId, userId, dateBegin, dateEnd);
+        return job.toVO();
+    }
+
+    /**
+     * 查询当前用户的导出任务
+     * @param jobId
+     * @return
+     */
+    @Override
+    public ReportExportJobVO getJob(String jobId) {
+        return getOwnJob(jobId).toVO();
+    }
+
+    /**
+     * 下载已完成的导出文件
+     * @param jobId
+     * @param response
+     */
+    @Override
+    public void download(String jobId, HttpServletResponse response) {
+        ExportJob job = getOwnJob(jobId);
+        if (!ReportExportJobVO.SUCCESS.equals(job.status)) {
+            throw new ReportBusinessException(MessageConstant.REPORT_EXPORT_NOT_READY);
+        }
+        try {
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            response.setHeader("Content-Disposition", "attachment;filename=report_" + job.jobId + ".xlsx");
+            response.setContentLengthLong(Files.size(job.file));
+            ServletOutputStream out = response.getOutputStream();
+            Files.copy(job.file, out);
+            out.close();
+        } catch (IOException e) {
+            log.error("下载报表导出文件失败:{}", jobId, e);
+        }
+    }
+
+    /**
+     * 清理超过保留时间的任务和导出文件
+     */
+    @Scheduled(cron = "0 0/10 * * * ?") //每10分钟触发一次
+    public void cleanExpiredJobs() {
+        LocalDateTime expireTime = LocalDateTime.now().minusMinutes(reportExportProperties.getRetainMinutes());
+        Iterator<ExportJob> iterator = jobMap.values().iterator();
+        while (iterator.hasNext()) {
+            ExportJob job = iterator.next();
+            if (job.finishTime != null && job.finishTime.isBefore(expireTime)) {
+                iterator.remove();
+                deleteFile(job.file);
+            }
+        }
+    }
+
+    private void run(ExportJob job) {
+        job.status = ReportExportJobVO.RUNNING;
+        try {
+            try (OutputStream out = Files.newOutputStream(job.file)) {
+                reportService.exportBusinessData(job.begin, job.end, out);
+            }
+            //文件流关闭后文件才完整，此时才允许下载
+            job.status = ReportExportJobVO.SUCCESS;
+        } catch (Exception e) {
+            log.error("报表导出任务失败:{}", job.jobId, e);
+            job.message = e.getMessage();
+            job.status = ReportExportJobVO.FAILED;
+            deleteFile(job.file);
+        } finally {
+            job.finishTime = LocalDateTime.now();
+        }
+    }
+
+    private ExportJob getOwnJob(String jobId) {
+        ExportJob job = jobMap.get(jobId);
+        //只能访问自己提交的任务
+        if (job == null || !job.userId.equals(BaseContext.getCurrentId())) {
+            throw new ReportBusinessException(MessageConstant.REPORT_EXPORT_NOT_FOUND);
+        }
+        return job;
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除报表导出文件失败:{}", file, e);
+        }
+    }
+
+    /**
+     * 导出任务，状态由执行线程修改、请求线程读取
+     */
+    private class ExportJob {
+        private final String jobId;
+        private final Long userId;
+        private final LocalDate begin;
+        private final LocalDate end;
+        private final LocalDateTime createTime = LocalDateTime.now();
+        private final Path file;
+        private volatile Integer status = ReportExportJobVO.WAITING;
+        private volatile LocalDateTime finishTime;
+        private volatile String message;
+
+        ExportJob(String jobId, Long userId, LocalDate begin, LocalDate end) {
+            this.jobId = jobId;
+            this.userId = userId;
+            this.begin = begin;
+            this.end = end;
+            this.file = dir.resolve(jobId + ".xlsx");
+        }
+
+        ReportExportJobVO toVO() {
+            return ReportExportJobVO.builder()
+                    .jobId(jobId)
+                    .status(status)
+                    .begin(begin)
+                    .end(end)
+                    .createTime(createTime)
+                    .finishTime(finishTime)
+                    .message(message)
+                    .build();
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package com.sky.service.impl;
 
+import com.sky.constant.MessageConstant;
+import com.sky.dto.DailyStatisticsDTO;
+import com.sky.dto.DateRangeDTO;
 import com.sky.dto.GoodsSalesDTO;
-import com.sky.entity.Orders;
+import com.sky.exception.ReportBusinessException;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.UserMapper;
+import com.sky.service.DailyBusinessStatsService;
 import com.sky.service.ReportService;
-import com.sky.service.WorkspaceService;
 import com.sky.vo.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -19,6 +26,7 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -32,12 +40,16 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ReportServiceImpl implements ReportService {
 
+    //模板中第一个明细行的行号和明细的最后一列
+    private static final int DETAIL_FIRST_ROW = 7;
+    private static final int DETAIL_LAST_CELL = 6;
+
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
     private UserMapper userMapper;
     @Autowired
-    private WorkspaceService workspaceService;
+    private DailyBusinessStatsService dailyBusinessStatsService;
 
     /**
      * 统计指定时间区间内的营业额数据
@@ -48,30 +60,16 @@ public class ReportServiceImpl implements ReportService {
      */
     @Override
     public TurnoverReportVO getTurnoverStatistics(LocalDate begin, LocalDate end) {
-        //当前集合用于存放从begin到end范围内的每天的日期
-        List<LocalDate> dateList = new ArrayList<>();
-        dateList.add(begin);
-        while (!begin.equals(end)) {
-            //日期计算，计算指定日期的后一天对应的日期
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        //查询区间内每天的营业数据，没有订单的日期已补0
+        List<DailyStatisticsDTO> statisticsList = dailyBusinessStatsService.listDailyStatistics(begin, end);
 
-        //存放每天的营业额
-        List<Double> turnoverList = new ArrayList<>();
-        for (LocalDate date : dateList) {
-            //查询date日期对应的营业额数据，营业额是指:状态为"已完成"的订单金额统计
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN); //代表最小时间 00:00
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX); //代表1一天的最大时间 23:59:59.999999999
-
-            //select sum(amount) from orders where order_time > beginTime and order_time < endTime and status = 5
-            Map map = new HashMap();
-            map.put("begin", beginTime);
-            map.put("end", endTime);
-            map.put("status", Orders.COMPLETED); // status = 5
-            Double turnover = orderMapper.sumByMap(map);
-            turnover = turnover == null ? 0.0 : turnover;
-            turnoverList.add(turnover);
+        //当前集合用于存放从begin到end范围内的每天的日期
+        List<LocalDate> dateList = new ArrayList<>(statisticsList.size());
+        //存放每天的营业额，营业额是指:状态为"已完成"的订单金额统计
+        List<Double> turnoverList = new ArrayList<>(statisticsList.size());
+        for (DailyStatisticsDTO statistics : statisticsList) {
+            dateList.add(statistics.getDate());
+            turnoverList.add(statistics.getTurnover());
         }
 
         //封装返回结果
@@ -91,35 +89,25 @@ public class ReportServiceImpl implements ReportService {
      */
     @Override
     public UserReportVO getUserStatistics(LocalDate begin, LocalDate end) {
-        //存放从begin到end之间的每天对应的日期
-        List<LocalDate> dateList = new ArrayList<>();
-        dateList.add(begin);
-        while (!begin.equals(end)) {
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
-
-        //存放每天的新增用户数量 select count(id) from user where create_time < ? and create_time > ?
-        List<Integer> newUserList = new ArrayList<>();
-        //存放每天的总用户数量 select count(id) from user where create_time < ?
-        List<Integer> totalUserList = new ArrayList<>();
-
-        for (LocalDate date : dateList) {
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-
-            Map map = new HashMap();
-            map.put("end", endTime);
-
-            //总用户数量
-            Integer totalUser = userMapper.countByMap(map);
+        //区间开始之前的用户总数 select count(id) from user where create_time < ?
+        Map map = new HashMap();
+        map.put("end", LocalDateTime.of(begin, LocalTime.MIN));
+        Integer totalUser = userMapper.countByMap(map);
 
-            map.put("begin", beginTime);
-            //新增用户数量
-            Integer newUser = userMapper.countByMap(map);
+        //查询区间内每天的新增用户数
+        List<DailyStatisticsDTO> statisticsList = dailyBusinessStatsService.listDailyStatistics(begin, end);
 
+        //存放从begin到end之间的每天对应的日期
+        List<LocalDate> dateList = new ArrayList<>(statisticsList.size());
+        //存放每天的新增用户数量
+        List<Integer> newUserList = new ArrayList<>(statisticsList.size());
+        //存放每天的总用户数量，由区间前的总数依次累加每天的新增用户数得到
+        List<Integer> totalUserList = new ArrayList<>(statisticsList.size());
+        for (DailyStatisticsDTO statistics : statisticsList) {
+            totalUser += statistics.getNewUsers();
+            dateList.add(statistics.getDate());
+            newUserList.add(statistics.getNewUsers());
             totalUserList.add(totalUser);
-            newUserList.add(newUser);
         }
 
         //封装结果数据
@@ -140,38 +128,28 @@ public class ReportServiceImpl implements ReportService {
      */
     @Override
     public OrderReportVO getOrderStatistics(LocalDate begin, LocalDate end) {
-        //存放从begin到end之间的每天对应的日期
-        List<LocalDate> dateList = new ArrayList<>();
-        dateList.add(begin);
-        while (!begin.equals(end)) {
-            begin = begin.plusDays(1);
-            dateList.add(begin);
-        }
+        //查询区间内每天的订单总数和有效订单数，没有订单的日期已补0
+        List<DailyStatisticsDTO> statisticsList = dailyBusinessStatsService.listDailyStatistics(begin, end);
 
+        //存放从begin到end之间的每天对应的日期
+        List<LocalDate> dateList = new ArrayList<>(statisticsList.size());
         //存放每天的订单总数
-        List<Integer> orderCountList = new ArrayList<>();
+        List<Integer> orderCountList = new ArrayList<>(statisticsList.size());
         //存放每天的有效订单数
-        List<Integer> validOrderCountList = new ArrayList<>();
-
-        //遍历dateList集合，查询每天的有效订单数和订单总数
-        for (LocalDate date : dateList) {
-            //查询每天的订单总数 select count(id) from orders where order_time > ? and order_time < ?
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-            Integer orderCount = getOrderCount(beginTime, endTime, null);
-
-            //查询每天的有效订单数 select count(id) from orders where order_time > ? and order_time < ? and status = 5
-            Integer validOrderCount = getOrderCount(beginTime, endTime, Orders.COMPLETED);
-            orderCountList.add(orderCount);
-            validOrderCountList.add(validOrderCount);
+        List<Integer> validOrderCountList = new ArrayList<>(statisticsList.size());
+
+        //计算时间区间内的订单总数量和有效订单数量
+        Integer totalOrderCount = 0;
+        Integer validOrderCount = 0;
+
+        for (DailyStatisticsDTO statistics : statisticsList) {
+            dateList.add(statistics.getDate());
+            orderCountList.add(statistics.getOrderCount());
+            validOrderCountList.add(statistics.getValidOrderCount());
+            totalOrderCount += statistics.getOrderCount();
+            validOrderCount += statistics.getValidOrderCount();
         }
 
-        //计算时间区间内的订单总数量
-        Integer totalOrderCount = orderCountList.stream().reduce(Integer::sum).get(); //计算orderCountList中所有整数的和
-
-        //计算时间区间内的有效订单数量
-        Integer validOrderCount = validOrderCountList.stream().reduce(Integer::sum).get();
-
         Double orderCompletionRate = 0.0;
         if(totalOrderCount != 0){
             //计算订单完成率
@@ -214,21 +192,80 @@ public class ReportServiceImpl implements ReportService {
                 .build();
     }
 
+    /**
+     * 补全并校验运营数据报表的日期区间，开始日期晚于结束日期时抛出异常
+     *
+     * @param begin 开始日期，为空时默认为30天前
+     * @param end 结束日期，为空时默认为昨天
+     * @return 补全后的日期区间
+     */
+    @Override
+    public DateRangeDTO resolveExportRange(LocalDate begin, LocalDate end) {
+        LocalDate dateBegin = begin != null ? begin : LocalDate.now().minusDays(30);
+        LocalDate dateEnd = end != null ? end : LocalDate.now().minusDays(1);
+        if (dateBegin.isAfter(dateEnd)) {
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_RANGE_ERROR);
+        }
+        return new DateRangeDTO(dateBegin, dateEnd);
+    }
+
     /**
      * 导出运营数据报表
+     *
+     * @param begin 开始日期，为空时默认为30天前
+     * @param end 结束日期，为空时默认为昨天
      * @param response
      */
     @Override
-    public void exportBusinessData(HttpServletResponse response) {
-        //1. 查询数据库，获取营业数据 -- 查询最近30天的运营数据
-        LocalDate dateBegin = LocalDate.now().minusDays(30);
-        LocalDate dateEnd = LocalDate.now().minusDays(1);
+    public void exportBusinessData(LocalDate begin, LocalDate end, HttpServletResponse response) {
+        DateRangeDTO range = resolveExportRange(begin, end);
+        LocalDate dateBegin = range.getBegin();
+        LocalDate dateEnd = range.getEnd();
+        try{
+            //通过输出流将Excel文件下载到客户端浏览器
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            response.setHeader("Content-Disposition", "attachment;filename=report_" + dateBegin + "_" + dateEnd + ".xlsx");
+            ServletOutputStream out = response.getOutputStream();
+            exportBusinessData(dateBegin, dateEnd, out);
+            out.close();
+        }catch(IOException e){
+            log.error("导出运营数据报表失败", e);
+        }
+    }
+
+    /**
+     * 导出运营数据报表到输出流
+     * 明细数据通过一次按天分组的查询获得，模板中的明细行删除后由SXSSF流式写入，
+     * 内存中最多保留100行，导出任意长的日期区间时内存占用不变
+     *
+     * @param begin 开始日期，为空时默认为30天前
+     * @param end 结束日期，为空时默认为昨天
+     * @param out
+     */
+    @Override
+    public void exportBusinessData(LocalDate begin, LocalDate end, OutputStream out) throws IOException {
+        //1. 查询数据库，获取营业数据 -- 默认查询最近30天的运营数据
+        DateRangeDTO range = resolveExportRange(begin, end);
+        LocalDate dateBegin = range.getBegin();
+        LocalDate dateEnd = range.getEnd();
+        List<DailyStatisticsDTO> statisticsList = dailyBusinessStatsService.listDailyStatistics(dateBegin, dateEnd);
+
+        //汇总概览数据
+        double turnover = 0;
+        int orderCount = 0;
+        int validOrderCount = 0;
+        int newUsers = 0;
+        for (DailyStatisticsDTO statistics : statisticsList) {
+            turnover += statistics.getTurnover();
+            orderCount += statistics.getOrderCount();
+            validOrderCount += statistics.getValidOrderCount();
+            newUsers += statistics.getNewUsers();
+        }
+        BusinessDataVO businessDataVO = toBusinessDataVO(turnover, orderCount, validOrderCount, newUsers);
 
-        //查询概览数据
-        BusinessDataVO businessDataVO = workspaceService.getBusinessDate(LocalDateTime.of(dateBegin, LocalTime.MIN), LocalDateTime.of(dateEnd, LocalTime.MAX));
         //通过POI将数据写入到Excel文件中
-        InputStream in = this.getClass().getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx");
-        try{
+        SXSSFWorkbook workbook = null;
+        try(InputStream in = this.getClass().getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx")){
             //基于模版文件创建一个新的Excel文件
             XSSFWorkbook excel = new XSSFWorkbook(in);
 
@@ -249,40 +286,71 @@ public class ReportServiceImpl implements ReportService {
             row.getCell(2).setCellValue(businessDataVO.getValidOrderCount());
             row.getCell(4).setCellValue(businessDataVO.getUnitPrice());
 
-            //填充明细数据
-            for(int i=0; i<30; i++){
-                LocalDate date = dateBegin.plusDays(i);
-                //查询某一天的营业数据
-                BusinessDataVO businessData = workspaceService.getBusinessData(LocalDateTime.of(date, LocalTime.MIN), LocalDateTime.of(date, LocalTime.MAX));
-                //获得某一行
-                row = sheet.getRow(7 + i);
-                row.getCell(1).setCellValue(date.toString());
-                row.getCell(2).setCellValue(businessData.getTurnover());
-                row.getCell(3).setCellValue(businessData.getValidOrderCount());
-                row.getCell(4).setCellValue(businessData.getOrderCompletionRate());
-                row.getCell(5).setCellValue(businessData.getUnitPrice());
-                row.getCell(6).setCellValue(businessData.getNewUsers());
+            //记录模板明细行的样式后删除明细行，SXSSF只能在模板已有的行之后追加新行
+            XSSFRow templateRow = sheet.getRow(DETAIL_FIRST_ROW);
+            short height = templateRow.getHeight();
+            CellStyle[] styles = new CellStyle[DETAIL_LAST_CELL + 1];
+            for (int i = 1; i <= DETAIL_LAST_CELL; i++) {
+                styles[i] = templateRow.getCell(i).getCellStyle();
+            }
+            for (int i = sheet.getLastRowNum(); i >= DETAIL_FIRST_ROW; i--) {
+                sheet.removeRow(sheet.getRow(i));
             }
 
-            //3. 通过输出流将Excel文件下载到客户端浏览器
-            ServletOutputStream out = response.getOutputStream();
-            excel.write(out);
-
-            //关闭资源
-            out.close();
-            excel.close();
+            //填充明细数据，超过100行的数据写入临时文件
+            workbook = new SXSSFWorkbook(excel, 100);
+            SXSSFSheet detailSheet = workbook.getSheet("Sheet1");
+            int rowNum = DETAIL_FIRST_ROW;
+            for (DailyStatisticsDTO statistics : statisticsList) {
+                BusinessDataVO businessData = toBusinessDataVO(statistics.getTurnover(), statistics.getOrderCount(),
+                        statistics.getValidOrderCount(), statistics.getNewUsers());
+                Row detailRow = detailSheet.createRow(rowNum++);
+                detailRow.setHeight(height);
+                for (int i = 1; i <= DETAIL_LAST_CELL; i++) {
+                    detailRow.createCell(i).setCellStyle(styles[i]);
+                }
+                detailRow.getCell(1).setCellValue(statistics.getDate().toString());
+                detailRow.getCell(2).setCellValue(businessData.getTurnover());
+                detailRow.getCell(3).setCellValue(businessData.getValidOrderCount());
+                detailRow.getCell(4).setCellValue(businessData.getOrderCompletionRate());
+                detailRow.getCell(5).setCellValue(businessData.getUnitPrice());
+                detailRow.getCell(6).setCellValue(businessData.getNewUsers());
+            }
 
-        }catch(Exception e){
-            e.printStackTrace();
+            //3. 写入输出流
+            workbook.write(out);
+            workbook.close();
+        }finally {
+            if (workbook != null) {
+                //删除临时文件
+                workbook.dispose();
+            }
         }
     }
 
-    private Integer getOrderCount(LocalDateTime begin, LocalDateTime end, Integer status){
-        Map map = new HashMap();
-        map.put("begin", begin);
-        map.put("end", end);
-        map.put("status", status);
-
-        return orderMapper.countByMap(map);
+    /**
+     * 根据营业额、订单数、新增用户数计算营业数据
+     * @param turnover
+     * @param orderCount
+     * @param validOrderCount
+     * @param newUsers
+     * @return
+     */
+    private static BusinessDataVO toBusinessDataVO(double turnover, int orderCount, int validOrderCount, int newUsers) {
+        double orderCompletionRate = 0.0;
+        double unitPrice = 0.0;
+        if (orderCount != 0 && validOrderCount != 0) {
+            //订单完成率
+            orderCompletionRate = (double) validOrderCount / orderCount;
+            //平均客单价
+            unitPrice = turnover / validOrderCount;
+        }
+        return BusinessDataVO.builder()
+                .turnover(turnover)
+                .validOrderCount(validOrderCount)
+                .orderCompletionRate(orderCompletionRate)
+                .unitPrice(unitPrice)
+                .newUsers(newUsers)
+                .build();
     }
 }
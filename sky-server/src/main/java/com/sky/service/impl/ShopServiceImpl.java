@@ -0,0 +1,166 @@
+package com.sky.service.impl;
+
+import com.sky.constant.StatusConstant;
+import com.sky.service.ShopService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 店铺营业状态
+ * 状态保存在Redis中，每个节点在内存中保留一份，查询时直接读取内存；
+ * 修改状态后通过Redis频道通知其他节点更新，并定时从Redis重新读取，防止错过通知；
+ * 定时读取期间收到了变更通知时，读取到的值可能比通知旧，此时不使用读取到的值
+ */
+@Service
+@Slf4j
+public class ShopServiceImpl implements ShopService {
+
+    public static final String KEY = "SHOP_STATUS";
+    //值未变化时才覆盖，避免覆盖其他节点刚设置的状态
+    private static final byte[] MIGRATE_SCRIPT = ("if redis.call('get', KEYS[1]) == ARGV[1] then "
+            + "redis.call('set', KEYS[1], ARGV[2]) return 1 end return 0").getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    //内存中的营业状态，null表示尚未从Redis读取
+    private volatile Integer status;
+    //本节点设置状态或收到变更通知的次数，由this同步
+    private long version;
+
+    /**
+     * 设置店铺营业状态
+     * @param status 1 营业中 0 打烊中
+     */
+    @Override
+    public void setStatus(Integer status) {
+        stringRedisTemplate.opsForValue().set(KEY, status.toString());
+        update(status);
+        stringRedisTemplate.convertAndSend(CHANNEL, status.toString());
+    }
+
+    /**
+     * 获取店铺营业状态
+     * @return
+     */
+    @Override
+    public Integer getStatus() {
+        Integer current = status;
+        if (current == null) {
+            current = refresh();
+        }
+        return current;
+    }
+
+    /**
+     * 收到其他节点的状态变更通知
+     * @param message
+     */
+    @Override
+    public void onStatusMessage(String message) {
+        Integer current = parse(message);
+        if (current != null) {
+            update(current);
+        }
+    }
+
+    /**
+     * 从Redis重新读取营业状态
+     * @return
+     */
+    @Scheduled(fixedDelay = 60000) //每分钟触发一次
+    public Integer refresh() {
+        long startVersion;
+        synchronized (this) {
+            startVersion = version;
+        }
+        //读取原始字节，兼容旧版本通过RedisTemplate写入的jdk序列化数据
+        byte[] value = stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.get(KEY.getBytes(StandardCharsets.UTF_8)));
+        Integer current = parse(value);
+        synchronized (this) {
+            //读取期间状态已被更新，读取到的值可能是旧的
+            if (version != startVersion) {
+                return status;
+            }
+            status = current;
+        }
+        return current;
+    }
+
+    /**
+     * 启动时读取一次营业状态，旧格式的数据在读取时转换为字符串格式
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        log.info("店铺营业状态:{}", refresh());
+    }
+
+    /**
+     * 设置或收到通知后更新内存中的状态
+     * @param current
+     */
+    private synchronized void update(Integer current) {
+        status = current;
+        version++;
+    }
+
+    /**
+     * 解析营业状态，没有设置过时视为打烊
+     * 旧版本通过RedisTemplate以jdk序列化方式写入，读取到这种格式时反序列化后以字符串格式写回
+     * @param value
+     * @return
+     */
+    private Integer parse(byte[] value) {
+        if (value == null) {
+            return StatusConstant.DISABLE;
+        }
+        Integer current = parse(new String(value, StandardCharsets.UTF_8));
+        if (current != null) {
+            return current;
+        }
+
+        Object legacy;
+        try {
+            legacy = new JdkSerializationRedisSerializer().deserialize(value);
+        } catch (SerializationException e) {
+            legacy = null;
+        }
+        Integer converted = legacy == null ? null : parse(legacy.toString());
+        if (converted == null) {
+            //无法识别的数据不能当作打烊处理，保留内存中的状态，等待管理员重新设置
+            log.error("店铺营业状态无法解析，保留当前状态:{}", status);
+            return status == null ? StatusConstant.DISABLE : status;
+        }
+        log.info("店铺营业状态由jdk序列化格式转换为字符串格式:{}", converted);
+        //只在值未被其他节点修改时写回
+        stringRedisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands().eval(
+                MIGRATE_SCRIPT, ReturnType.INTEGER, 1,
+                KEY.getBytes(StandardCharsets.UTF_8), value, converted.toString().getBytes(StandardCharsets.UTF_8)));
+        return converted;
+    }
+
+    /**
+     * 解析字符串格式的营业状态
+     * @param value
+     * @return 无法解析时返回null
+     */
+    private static Integer parse(String value) {
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.sky.service.impl;
 
+import com.sky.cart.ShoppingCartStore;
 import com.sky.context.BaseContext;
 import com.sky.dto.ShoppingCartDTO;
 import com.sky.entity.Dish;
@@ -7,7 +8,6 @@ import com.sky.entity.Setmeal;
 import com.sky.entity.ShoppingCart;
 import com.sky.mapper.DishMapper;
 import com.sky.mapper.SetmealMapper;
-import com.sky.mapper.ShoppingCartMapper;
 import com.sky.service.ShoppingCartService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
@@ -21,7 +21,7 @@ import java.util.List;
 @Slf4j
 public class ShoppingCartServiceImpl implements ShoppingCartService {
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
+    private ShoppingCartStore shoppingCartStore;
     @Autowired
     private DishMapper dishMapper;
     @Autowired
@@ -31,43 +31,36 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
      * @param shoppingCartDTO
      */
     public void addShoppingCart(ShoppingCartDTO shoppingCartDTO){
-        //判断当前加入到购物车中的商品是否已经存在了
         ShoppingCart shoppingCart = new ShoppingCart();
         BeanUtils.copyProperties(shoppingCartDTO, shoppingCart);
         Long userId = BaseContext.getCurrentId();
         shoppingCart.setUserId(userId);
 
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-
-        //如果已经存在了，只需要将数量加一
-        if(list != null && list.size() > 0){
-            ShoppingCart cart = list.get(0);
-            cart.setNumber(cart.getNumber() + 1);
-            shoppingCartMapper.updateNumberById(cart);
+        //如果当前加入到购物车中的商品已经存在了，只需要将数量加一
+        if(shoppingCartStore.increase(shoppingCart)){
+            return;
         }
-        else {
-            //如果不存在，需要插入一条购物车数据
 
-            //判断本次添加到购物车的是菜品还是套餐
-            Long dishId = shoppingCartDTO.getDishId();
-            if(dishId != null){
-                //本次添加到购物车的是菜品
-                Dish dish = dishMapper.getById(dishId);
-                shoppingCart.setName(dish.getName());
-                shoppingCart.setImage(dish.getImage());
-                shoppingCart.setAmount(dish.getPrice());
-            }else{
-                //本次添加到购物车的是套餐
-                Long setmealId = shoppingCartDTO.getSetmealId();
-                Setmeal setmeal = setmealMapper.getMealById(setmealId);
-                shoppingCart.setName(setmeal.getName());
-                shoppingCart.setImage(setmeal.getImage());
-                shoppingCart.setAmount(setmeal.getPrice());
-            }
+        //如果不存在，需要插入一条购物车数据
+        //判断本次添加到购物车的是菜品还是套餐
+        Long dishId = shoppingCartDTO.getDishId();
+        if(dishId != null){
+            //本次添加到购物车的是菜品
+            Dish dish = dishMapper.getById(dishId);
+            shoppingCart.setName(dish.getName());
+            shoppingCart.setImage(dish.getImage());
+            shoppingCart.setAmount(dish.getPrice());
+        }else{
+            //本次添加到购物车的是套餐
+            Long setmealId = shoppingCartDTO.getSetmealId();
+            Setmeal setmeal = setmealMapper.getMealById(setmealId);
+            shoppingCart.setName(setmeal.getName());
+            shoppingCart.setImage(setmeal.getImage());
+            shoppingCart.setAmount(setmeal.getPrice());
         }
         shoppingCart.setNumber(1);
         shoppingCart.setCreateTime(LocalDateTime.now());
-        shoppingCartMapper.insert(shoppingCart);
+        shoppingCartStore.insert(shoppingCart);
 
     }
 
@@ -79,40 +72,23 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
     public List<ShoppingCart> showShoppingCart() {
         //获取到当前微信用户的id
         Long userId = BaseContext.getCurrentId();
-        ShoppingCart shoppingCart = new ShoppingCart();
-        shoppingCart.setUserId(userId);
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-        return list;
+        return shoppingCartStore.list(userId);
     }
 
     @Override
     public void cleanShoppingCart() {
         Long userId = BaseContext.getCurrentId();
-        shoppingCartMapper.clean(userId);
+        shoppingCartStore.clean(userId);
     }
 
     @Override
     public void subShoppingCart(ShoppingCartDTO shoppingCartDTO) {
         ShoppingCart shoppingCart = new ShoppingCart();
         BeanUtils.copyProperties(shoppingCartDTO,shoppingCart);
-        //设置查询条件，查询当前登录用户的购物车数据
+        //设置查询条件，当前登录用户的购物车数据
         shoppingCart.setUserId(BaseContext.getCurrentId());
-
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-
-        if(list != null && list.size() > 0){
-            shoppingCart = list.get(0);
-
-            Integer number = shoppingCart.getNumber();
-            if(number == 1){
-                //当前商品在购物车中的份数为1，直接删除当前记录
-                shoppingCartMapper.deleteById(shoppingCart.getId());
-            }else {
-                //当前商品在购物车中的份数不为1，修改份数即可
-                shoppingCart.setNumber(shoppingCart.getNumber() - 1);
-                shoppingCartMapper.updateNumberById(shoppingCart);
-            }
-        }
+        //份数减一，减到0时删除当前商品
+        shoppingCartStore.decrease(shoppingCart);
     }
 
 }
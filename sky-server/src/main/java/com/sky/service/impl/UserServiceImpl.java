@@ -30,6 +30,8 @@ public class UserServiceImpl implements UserService {
 
     @Autowired
     private UserMapper userMapper;
+    @Autowired
+    private HttpClientUtil httpClientUtil;
 
     /**
      * 微信登陆
@@ -44,9 +46,10 @@ public class UserServiceImpl implements UserService {
         map.put("js_code", userLoginDTO.getCode());
         map.put("grant_type", "authorization_code");
 
-        String json = HttpClientUtil.doGet(WX_LOGIN, map);
+        String json = httpClientUtil.get(WX_LOGIN, map);
         JSONObject jsonObject = JSON.parseObject(json);
-        String openid = jsonObject.getString("openid");
+        //请求失败时响应内容为空
+        String openid = jsonObject == null ? null : jsonObject.getString("openid");
         //判断openid是否为空，如果为空表示登陆失败，抛出业务异常
         if(openid == null){
             throw new LoginFailedException(MessageConstant.LOGIN_FAILED);
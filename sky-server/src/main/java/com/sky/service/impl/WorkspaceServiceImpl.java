@@ -1,11 +1,10 @@
 package com.sky.service.impl;
 
-import com.sky.constant.StatusConstant;
-import com.sky.entity.Orders;
+import com.sky.dto.DailyStatisticsDTO;
 import com.sky.mapper.DishMapper;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.SetmealMapper;
-import com.sky.mapper.UserMapper;
+import com.sky.service.DailyBusinessStatsService;
 import com.sky.service.WorkspaceService;
 import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
@@ -14,10 +13,9 @@ import com.sky.vo.SetmealOverViewVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.HashMap;
-import java.util.Map;
 
 @Service
 @Slf4j
@@ -26,11 +24,11 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
-    private UserMapper userMapper;
-    @Autowired
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private DailyBusinessStatsService dailyBusinessStatsService;
 
     /**
      * 根据时间段统计营业数据
@@ -46,42 +44,12 @@ public class WorkspaceServiceImpl implements WorkspaceService {
          * 平均客单价：营业额 / 有效订单数
          * 新增用户：当日新增用户的数量
          */
-
-        Map map = new HashMap();
-        map.put("begin",begin);
-        map.put("end",end);
-
-        //查询总订单数
-        Integer totalOrderCount = orderMapper.countByMap(map);
-
-        map.put("status", Orders.COMPLETED);
-        //营业额
-        Double turnover = orderMapper.sumByMap(map);
-        turnover = turnover == null? 0.0 : turnover;
-
-        //有效订单数
-        Integer validOrderCount = orderMapper.countByMap(map);
-
-        Double unitPrice = 0.0;
-
-        Double orderCompletionRate = 0.0;
-        if(totalOrderCount != 0 && validOrderCount != 0){
-            //订单完成率
-            orderCompletionRate = validOrderCount.doubleValue() / totalOrderCount;
-            //平均客单价
-            unitPrice = turnover / validOrderCount;
+        if (isWholeDay(begin, end)) {
+            return getBusinessDataByDay(begin.toLocalDate(), end.toLocalDate());
         }
 
-        //新增用户数
-        Integer newUsers = userMapper.countByMap(map);
-
-        return BusinessDataVO.builder()
-                .turnover(turnover)
-                .validOrderCount(validOrderCount)
-                .orderCompletionRate(orderCompletionRate)
-                .unitPrice(unitPrice)
-                .newUsers(newUsers)
-                .build();
+        //订单总数、营业额、有效订单数、新增用户数一次查询
+        return toBusinessDataVO(orderMapper.getBusinessStatistics(begin, end));
     }
 
 
@@ -91,36 +59,8 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @return
      */
     public OrderOverViewVO getOrderOverView() {
-        Map map = new HashMap();
-        map.put("begin", LocalDateTime.now().with(LocalTime.MIN));
-        map.put("status", Orders.TO_BE_CONFIRMED);
-
-        //待接单
-        Integer waitingOrders = orderMapper.countByMap(map);
-
-        //待派送
-        map.put("status", Orders.CONFIRMED);
-        Integer deliveredOrders = orderMapper.countByMap(map);
-
-        //已完成
-        map.put("status", Orders.COMPLETED);
-        Integer completedOrders = orderMapper.countByMap(map);
-
-        //已取消
-        map.put("status", Orders.CANCELLED);
-        Integer cancelledOrders = orderMapper.countByMap(map);
-
-        //全部订单
-        map.put("status", null);
-        Integer allOrders = orderMapper.countByMap(map);
-
-        return OrderOverViewVO.builder()
-                .waitingOrders(waitingOrders)
-                .deliveredOrders(deliveredOrders)
-                .completedOrders(completedOrders)
-                .cancelledOrders(cancelledOrders)
-                .allOrders(allOrders)
-                .build();
+        //待接单、待派送、已完成、已取消、全部订单一次查询
+        return orderMapper.getOrderOverView(LocalDateTime.now().with(LocalTime.MIN));
     }
 
     /**
@@ -129,17 +69,7 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @return
      */
     public DishOverViewVO getDishOverView() {
-        Map map = new HashMap();
-        map.put("status", StatusConstant.ENABLE);
-        Integer sold = dishMapper.countByMap(map);
-
-        map.put("status", StatusConstant.DISABLE);
-        Integer discontinued = dishMapper.countByMap(map);
-
-        return DishOverViewVO.builder()
-                .sold(sold)
-                .discontinued(discontinued)
-                .build();
+        return dishMapper.getOverView();
     }
 
     /**
@@ -148,66 +78,66 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @return
      */
     public SetmealOverViewVO getSetmealOverView() {
-        Map map = new HashMap();
-        map.put("status", StatusConstant.ENABLE);
-        Integer sold = setmealMapper.countByMap(map);
-
-        map.put("status", StatusConstant.DISABLE);
-        Integer discontinued = setmealMapper.countByMap(map);
-
-        return SetmealOverViewVO.builder()
-                .sold(sold)
-                .discontinued(discontinued)
-                .build();
+        return setmealMapper.getOverView();
     }
 
     /**
-     *
+     * 时间段是否从某天的开始到某天的结束
      * @param begin
      * @param end
      * @return
      */
-    @Override
-    public BusinessDataVO getBusinessDate(LocalDateTime begin, LocalDateTime end) {
-        /**
-         * 营业额: 当日已完成订单的总金额
-         * 有效订单：当日已完成订单的数量
-         * 订单完成率：有效订单数/总订单数
-         * 平均客单价：营业额/有效订单数
-         * 新增用户：当日新增用户的数量
-         */
-        Map map = new HashMap();
-        map.put("begin", begin);
-        map.put("end", end);
-
-        //查询订单总数
-        Integer totalOrderCount = orderMapper.countByMap(map);
-        map.put("status", Orders.COMPLETED);
+    private boolean isWholeDay(LocalDateTime begin, LocalDateTime end) {
+        return begin.toLocalTime().equals(LocalTime.MIN) && end.toLocalTime().equals(LocalTime.MAX);
+    }
 
-        //营业额
-        Double turnover = orderMapper.sumByMap(map);
-        turnover = turnover == null? 0.0 : turnover;
+    /**
+     * 根据每日汇总数据累加出日期区间内的营业数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    private BusinessDataVO getBusinessDataByDay(LocalDate begin, LocalDate end) {
+        DailyStatisticsDTO total = DailyStatisticsDTO.builder()
+                .turnover(0.0)
+                .orderCount(0)
+                .validOrderCount(0)
+                .newUsers(0)
+                .build();
+        for (DailyStatisticsDTO statistics : dailyBusinessStatsService.listDailyStatistics(begin, end)) {
+            total.setTurnover(total.getTurnover() + statistics.getTurnover());
+            total.setOrderCount(total.getOrderCount() + statistics.getOrderCount());
+            total.setValidOrderCount(total.getValidOrderCount() + statistics.getValidOrderCount());
+            total.setNewUsers(total.getNewUsers() + statistics.getNewUsers());
+        }
+        return toBusinessDataVO(total);
+    }
 
-        //有效订单数
-        Integer validOrderCount = orderMapper.countByMap(map);
+    /**
+     * 根据订单总数、有效订单数、营业额和新增用户数计算营业数据
+     * @param statistics
+     * @return
+     */
+    private BusinessDataVO toBusinessDataVO(DailyStatisticsDTO statistics) {
+        Double turnover = statistics.getTurnover();
+        Integer totalOrderCount = statistics.getOrderCount();
+        Integer validOrderCount = statistics.getValidOrderCount();
 
         Double unitPrice = 0.0;
         Double orderCompletionRate = 0.0;
-        if(totalOrderCount!=0 && validOrderCount!=0){
+        if (totalOrderCount != 0 && validOrderCount != 0) {
             //订单完成率
             orderCompletionRate = validOrderCount.doubleValue() / totalOrderCount;
             //平均客单价
             unitPrice = turnover / validOrderCount;
         }
 
-        //新增用户数
-        Integer newUsers = userMapper.countByMap(map);
         return BusinessDataVO.builder()
                 .turnover(turnover)
                 .validOrderCount(validOrderCount)
                 .orderCompletionRate(orderCompletionRate)
                 .unitPrice(unitPrice)
-                .newUsers(newUsers)
+                .newUsers(statistics.getNewUsers())
                 .build();
     }
 }
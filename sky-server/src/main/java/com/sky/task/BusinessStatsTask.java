@@ -0,0 +1,22 @@
+package com.sky.task;
+
+import com.sky.service.DailyBusinessStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class BusinessStatsTask {
+    @Autowired
+    private DailyBusinessStatsService dailyBusinessStatsService;
+
+    /**
+     * 每5分钟输出一次营业数据缓存统计
+     */
+    @Scheduled(cron = "0 0/5 * * * ?")
+    public void logCacheMetrics() {
+        log.info("营业数据缓存统计:{}", dailyBusinessStatsService.getCacheMetrics());
+    }
+}
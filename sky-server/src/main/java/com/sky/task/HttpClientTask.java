@@ -0,0 +1,22 @@
+package com.sky.task;
+
+import com.sky.utils.HttpClientUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class HttpClientTask {
+    @Autowired
+    private HttpClientUtil httpClientUtil;
+
+    /**
+     * 每5分钟输出一次Http连接池统计
+     */
+    @Scheduled(cron = "0 0/5 * * * ?")
+    public void logMetrics() {
+        log.info("Http连接池统计:{}", httpClientUtil.getMetrics());
+    }
+}
@@ -0,0 +1,26 @@
+package com.sky.task;
+
+import com.sky.interceptor.JwtTokenAdminInterceptor;
+import com.sky.interceptor.JwtTokenUserInterceptor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class JwtTokenTask {
+    @Autowired
+    private JwtTokenAdminInterceptor jwtTokenAdminInterceptor;
+    @Autowired
+    private JwtTokenUserInterceptor jwtTokenUserInterceptor;
+
+    /**
+     * 每5分钟输出一次令牌校验统计
+     */
+    @Scheduled(cron = "0 0/5 * * * ?")
+    public void logMetrics() {
+        log.info("管理端令牌校验统计:{}", jwtTokenAdminInterceptor.getMetrics());
+        log.info("用户端令牌校验统计:{}", jwtTokenUserInterceptor.getMetrics());
+    }
+}
@@ -2,14 +2,18 @@ package com.sky.task;
 
 import com.sky.entity.Orders;
 import com.sky.mapper.OrderMapper;
+import com.sky.properties.OrderTaskProperties;
+import com.sky.service.DailyBusinessStatsService;
+import com.sky.service.OrderStatusCountService;
 import lombok.extern.slf4j.Slf4j;
-import net.bytebuddy.asm.Advice;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * 定时任务类，定时处理订单状态
@@ -19,28 +23,27 @@ import java.util.List;
 public class OrderTask {
     @Autowired
     private OrderMapper orderMapper;
+    @Autowired
+    private DailyBusinessStatsService dailyBusinessStatsService;
+    @Autowired
+    private OrderTaskProperties orderTaskProperties;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private OrderTimeoutQueue orderTimeoutQueue;
+    @Autowired
+    private OrderStatusCountService orderStatusCountService;
 
     /**
      * 处理超时订单的方法
+     * 订单到期后由超时队列的时间轮立即取消，这里只处理超时队列中遗漏的订单，如宕机节点上的订单
      */
-    @Scheduled(cron = "0 * * * * ?") //每分钟触发一次
+    @Scheduled(cron = "0/5 * * * * ?") //每5秒触发一次
     public void processTimeoutOrder(){
-        log.info("定时处理超时订单: {}", LocalDateTime.now());
-
-        LocalDateTime time = LocalDateTime.now().plusMinutes(-15);
-
-        //select * from orders where status = ? and order_tiem < (当前时间 - 15分钟）
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.PENDING_PAYMENT, time);
-
-        if(ordersList != null && ordersList.size() > 0){
-            for (Orders orders: ordersList){
-                orders.setStatus(Orders.CANCELLED);
-                orders.setCancelReason("订单超时，自动取消");
-                orders.setCancelTime(LocalDateTime.now());
-                orderMapper.update(orders);
-            }
+        int count = orderTimeoutQueue.expireOverdue();
+        if (count > 0) {
+            log.info("定时处理超时订单，取消订单数: {}", count);
         }
-
     }
 
     /**
@@ -50,12 +53,48 @@ public class OrderTask {
     public void processDeliveryOrder(){
         log.info("定时处理处于派送中的订单:{}", LocalDateTime.now());
         LocalDateTime localDateTime = LocalDateTime.now().plusMinutes(-60);
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.DELIVERY_IN_PROGRESS, localDateTime);
-        if(ordersList != null && ordersList.size() > 0){
-            for (Orders orders: ordersList){
-                orders.setStatus(Orders.COMPLETED);
-                orderMapper.update(orders);
+        Orders completed = Orders.builder()
+                .status(Orders.COMPLETED)
+                .build();
+        int count = updateStatusInBatches(Orders.DELIVERY_IN_PROGRESS, localDateTime, completed);
+        log.info("派送中订单处理完成，完成订单数: {}", count);
+    }
+
+    /**
+     * 按id顺序分批修改下单时间早于指定时间的订单状态，每批在一个事务中完成，
+     * 内存占用和单个事务的大小都不超过批大小
+     * @param fromStatus 原状态
+     * @param orderTime
+     * @param orders 修改后的状态及取消原因等信息
+     * @return 修改的订单总数
+     */
+    private int updateStatusInBatches(Integer fromStatus, LocalDateTime orderTime, Orders orders) {
+        int batchSize = orderTaskProperties.getBatchSize();
+        int total = 0;
+        long lastId = 0L;
+        //每批实际修改的订单数，状态已被并发修改的订单不计入
+        int[] updated = new int[1];
+        while (true) {
+            long afterId = lastId;
+            updated[0] = 0;
+            List<Orders> batch = transactionTemplate.execute(status -> {
+                //查询时已对这批订单加锁，修改前状态不会被并发修改
+                List<Orders> ordersList = orderMapper.getBatchByStatusAndOrderTimeLT(fromStatus, orderTime, afterId, batchSize);
+                if (ordersList.isEmpty()) {
+                    return ordersList;
+                }
+                List<Long> ids = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+                updated[0] = orderMapper.updateStatusBatch(ids, fromStatus, orders);
+                dailyBusinessStatsService.onStatusChange(ordersList, orders.getStatus());
+                orderStatusCountService.onStatusChange(fromStatus, orders.getStatus(), updated[0]);
+                return ordersList;
+            });
+
+            total += updated[0];
+            if (batch.size() < batchSize) {
+                return total;
             }
+            lastId = batch.get(batch.size() - 1).getId();
         }
     }
 }
@@ -0,0 +1,217 @@
+package com.sky.task;
+
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.properties.OrderTaskProperties;
+import com.sky.service.OrderStatusCountService;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 待付款订单的超时队列
+ * 下单后订单id按超时时间写入Redis有序集合，同时放入本节点的时间轮，到期后立即取消订单；
+ * 有序集合保证节点重启或宕机后超时任务不会丢失，由定时任务扫描有序集合中已到期的订单兜底处理；
+ * 多个节点通过从有序集合中删除订单id来抢占取消任务，同一订单只会被处理一次
+ */
+@Component
+@Slf4j
+public class OrderTimeoutQueue {
+
+    //待付款订单的超时时间(分钟)
+    public static final int TIMEOUT_MINUTES = 15;
+    //有序集合的key，member为订单id，score为超时时间戳(毫秒)
+    private static final String KEY = "order_timeout";
+    //取消失败的订单放回有序集合后延迟重试的时间(毫秒)
+    private static final long RETRY_DELAY_MILLIS = 60_000;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private OrderTaskProperties orderTaskProperties;
+    @Autowired
+    private OrderStatusCountService orderStatusCountService;
+
+    //时间轮，精度100毫秒
+    private final Timer timer = new HashedWheelTimer(r -> {
+        Thread thread = new Thread(r, "order-timeout-timer");
+        thread.setDaemon(true);
+        return thread;
+    }, 100, TimeUnit.MILLISECONDS, 512);
+
+    //取消订单需要访问数据库，不在时间轮线程中执行
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "order-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 订单创建后加入超时队列，在事务中调用时等事务提交后再加入
+     * @param orderId
+     * @param orderTime 下单时间
+     */
+    public void add(Long orderId, LocalDateTime orderTime) {
+        long deadline = toMillis(orderTime.plusMinutes(TIMEOUT_MINUTES));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(orderId, deadline);
+                }
+            });
+        } else {
+            add(orderId, deadline);
+        }
+    }
+
+    /**
+     * 订单已支付或已取消，从超时队列中移除
+     * 本节点时间轮中的任务到期后会因抢占失败而跳过
+     * @param orderId
+     */
+    public void remove(Long orderId) {
+        stringRedisTemplate.opsForZSet().remove(KEY, orderId.toString());
+    }
+
+    /**
+     * 处理有序集合中已到期但未被时间轮处理的订单，如其他节点宕机前创建的订单
+     * @return 取消的订单数
+     */
+    public int expireOverdue() {
+        int batchSize = orderTaskProperties.getBatchSize();
+        int count = 0;
+        //截止时间只取一次，本次执行中放回的订单不会被重复处理
+        long now = System.currentTimeMillis();
+        while (true) {
+            Set<String> orderIds = stringRedisTemplate.opsForZSet()
+                    .rangeByScore(KEY, 0, now, 0, batchSize);
+            if (orderIds == null || orderIds.isEmpty()) {
+                return count;
+            }
+            for (String orderId : orderIds) {
+                if (expire(Long.valueOf(orderId))) {
+                    count++;
+                }
+            }
+            if (orderIds.size() < batchSize) {
+                return count;
+            }
+        }
+    }
+
+    /**
+     * 启动时把所有待付款订单补充到有序集合中，防止Redis数据丢失或本功能上线前创建的订单无法超时取消，
+     * 已经到期的订单由定时任务处理
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        int batchSize = orderTaskProperties.getBatchSize();
+        int count = 0;
+        long lastId = 0L;
+        try {
+            while (true) {
+                List<Orders> ordersList = orderMapper.getBatchByStatus(Orders.PENDING_PAYMENT, lastId, batchSize);
+                if (ordersList.isEmpty()) {
+                    break;
+                }
+                Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+                for (Orders orders : ordersList) {
+                    long deadline = toMillis(orders.getOrderTime().plusMinutes(TIMEOUT_MINUTES));
+                    tuples.add(ZSetOperations.TypedTuple.of(orders.getId().toString(), (double) deadline));
+                }
+                stringRedisTemplate.opsForZSet().add(KEY, tuples);
+                count += ordersList.size();
+                if (ordersList.size() < batchSize) {
+                    break;
+                }
+                lastId = ordersList.get(ordersList.size() - 1).getId();
+            }
+            log.info("待付款订单超时队列初始化完成，订单数: {}", count);
+        } catch (Exception e) {
+            log.error("待付款订单超时队列初始化失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timer.stop();
+        executor.shutdown();
+    }
+
+    private void add(Long orderId, long deadline) {
+        try {
+            stringRedisTemplate.opsForZSet().add(KEY, orderId.toString(), deadline);
+        } catch (Exception e) {
+            //写入失败时仍放入时间轮，重启后由启动时的补充处理
+            log.error("订单{}加入超时队列失败:{}", orderId, e.getMessage());
+        }
+        long delay = Math.max(0, deadline - System.currentTimeMillis());
+        timer.newTimeout(timeout -> executor.execute(() -> expire(orderId)), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 取消超时订单，先从有序集合中删除订单id抢占任务，抢占成功后只取消仍处于待付款状态的订单
+     * @param orderId
+     * @return 是否取消了订单
+     */
+    private boolean expire(Long orderId) {
+        try {
+            Long removed = stringRedisTemplate.opsForZSet().remove(KEY, orderId.toString());
+            if (removed == null || removed == 0) {
+                return false;
+            }
+        } catch (Exception e) {
+            log.error("订单{}超时处理失败:{}", orderId, e.getMessage());
+            return false;
+        }
+
+        try {
+            Orders cancelled = Orders.builder()
+                    .status(Orders.CANCELLED)
+                    .cancelReason("订单超时，自动取消")
+                    .cancelTime(LocalDateTime.now())
+                    .build();
+            if (orderMapper.updateStatusBatch(Collections.singletonList(orderId), Orders.PENDING_PAYMENT, cancelled) == 0) {
+                return false;
+            }
+            orderStatusCountService.onStatusChange(Orders.PENDING_PAYMENT, Orders.CANCELLED);
+            return true;
+        } catch (Exception e) {
+            //延迟一段时间后放回有序集合，由之后的定时任务重试
+            log.error("订单{}超时取消失败:{}", orderId, e.getMessage());
+            try {
+                stringRedisTemplate.opsForZSet().add(KEY, orderId.toString(), System.currentTimeMillis() + RETRY_DELAY_MILLIS);
+            } catch (Exception ex) {
+                //放回失败时只能等下次启动时的补充处理
+                log.error("订单{}放回超时队列失败:{}", orderId, ex.getMessage());
+            }
+            return false;
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
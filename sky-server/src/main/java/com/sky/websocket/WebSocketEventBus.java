@@ -0,0 +1,124 @@
+package com.sky.websocket;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 跨节点的WebSocket消息总线
+ * 订单消息先发布到Redis频道，每个节点收到后推送给本节点上的WebSocket会话，
+ * 这样无论商家连接在哪个节点上都能收到消息；
+ * 短时间内的多条消息会合并为一批发布，减少突发下单时的Redis消息数
+ */
+@Component
+@Slf4j
+public class WebSocketEventBus implements MessageListener {
+
+    //Redis频道
+    public static final String CHANNEL = "sky:websocket:order";
+    //合并发布的时间窗口(毫秒)
+    private static final long BATCH_WINDOW_MILLIS = 50;
+    //每批最多包含的消息数
+    private static final int MAX_BATCH_SIZE = 100;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private WebSocketServer webSocketServer;
+
+    private final ConcurrentLinkedQueue<JSONObject> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "websocket-event-bus");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 发布订单相关消息，所有节点上订阅了该类型的会话都会收到
+     *
+     * @param type    消息类型 1 来单提醒 2 客户催单
+     * @param orderId 订单id
+     * @param content 消息内容
+     */
+    public void publish(Integer type, Long orderId, String content) {
+        JSONObject event = new JSONObject();
+        event.put("type", type);
+        event.put("message", WebSocketServer.buildMessage(type, orderId, content));
+        pending.add(event);
+        if (flushScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::flush, BATCH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 收到Redis频道中的一批消息，推送给本节点的会话
+     *
+     * @param message
+     * @param pattern
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            deliver(JSON.parseArray(body, JSONObject.class));
+        } catch (Exception e) {
+            log.error("WebSocket消息解析失败:{}", body, e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+        flush();
+    }
+
+    private void flush() {
+        //先重置标记，之后入队的消息会安排新的一次发布
+        flushScheduled.set(false);
+        List<JSONObject> batch = new ArrayList<>();
+        JSONObject event;
+        while ((event = pending.poll()) != null) {
+            batch.add(event);
+            if (batch.size() == MAX_BATCH_SIZE) {
+                send(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private void send(List<JSONObject> batch) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, JSONArray.toJSONString(batch));
+        } catch (Exception e) {
+            //Redis不可用时至少保证本节点的会话能收到消息
+            log.error("WebSocket消息发布失败，仅推送本节点:{}", e.getMessage());
+            deliver(batch);
+        }
+    }
+
+    private void deliver(List<JSONObject> batch) {
+        for (JSONObject event : batch) {
+            webSocketServer.sendToTopic(event.getInteger("type"), event.getString("message"));
+        }
+    }
+}
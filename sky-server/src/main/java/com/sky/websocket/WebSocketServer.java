@@ -1,33 +1,79 @@
 package com.sky.websocket;
 
+import com.alibaba.fastjson.JSON;
+import com.sky.constant.WebSocketConstant;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import javax.websocket.CloseReason;
 import javax.websocket.OnClose;
+import javax.websocket.OnError;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * WebSocket服务
+ * 客户端建立连接时可以通过 types 参数订阅消息类型（1 来单提醒 2 客户催单），推送时只发送给订阅了该类型的会话；
+ * 每个会话有一个有界发送队列，消息通过异步方式逐条发送，推送方只负责入队，不会被慢客户端阻塞；
+ * 队列已满说明客户端长时间无法接收，此时丢弃消息并关闭该会话，由客户端重新连接；
+ * 关闭会话时需要发送关闭帧，可能阻塞到发送超时，因此在单独的线程中执行，不阻塞推送方
  */
 @Component
 @ServerEndpoint("/ws/{sid}") //根据路径进行匹配
+@Slf4j
 public class WebSocketServer {
 
+    //每个会话最多积压的消息数
+    private static final int QUEUE_CAPACITY = 100;
+    //单条消息的发送超时时间(毫秒)
+    private static final long SEND_TIMEOUT_MILLIS = 5000;
+
     //存放会话对象
-    private static Map<String, Session> sessionMap = new HashMap();
+    private static final Map<String, SessionSender> sessionMap = new ConcurrentHashMap<>();
+
+    //关闭会话的线程
+    private static final ExecutorService closeExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "websocket-close");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //发送统计
+    private static final LongAdder sentCount = new LongAdder();
+    private static final LongAdder droppedCount = new LongAdder();
+    private static final LongAdder failedCount = new LongAdder();
+    private static final LongAdder sendNanos = new LongAdder();
+    private static final AtomicLong maxSendNanos = new AtomicLong();
 
     /**
      * 连接建立成功调用的方法
      */
     @OnOpen
     public void onOpen(Session session, @PathParam("sid") String sid) {
-        System.out.println("客户端：" + sid + "建立连接");
-        sessionMap.put(sid, session);
+        log.info("客户端：{}建立连接", sid);
+        session.getAsyncRemote().setSendTimeout(SEND_TIMEOUT_MILLIS);
+        SessionSender old = sessionMap.put(sid, new SessionSender(sid, session, getSubscribedTypes(session)));
+        if (old != null) {
+            old.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "replaced"));
+        }
     }
 
     /**
@@ -37,7 +83,7 @@ public class WebSocketServer {
      */
     @OnMessage
     public void onMessage(String message, @PathParam("sid") String sid) {
-        System.out.println("收到来自客户端：" + sid + "的信息:" + message);
+        log.info("收到来自客户端：{}的信息:{}", sid, message);
     }
 
     /**
@@ -46,28 +92,231 @@ public class WebSocketServer {
      * @param sid
      */
     @OnClose
-    public void onClose(@PathParam("sid") String sid) {
-        System.out.println("连接断开:" + sid);
-        sessionMap.remove(sid);
+    public void onClose(Session session, @PathParam("sid") String sid) {
+        log.info("连接断开:{}", sid);
+        remove(sid, session);
     }
 
     /**
-     * 群发
+     * 连接出错调用的方法
+     *
+     * @param sid
+     */
+    @OnError
+    public void onError(Session session, Throwable error, @PathParam("sid") String sid) {
+        log.warn("连接异常:{}, {}", sid, error.getMessage());
+        remove(sid, session);
+    }
+
+    /**
+     * 群发，消息放入各会话的发送队列后立即返回
      *
      * @param message
      */
     public void sendToAllClient(String message) {
-        Collection<Session> sessions = sessionMap.values();
-        for (Session session : sessions) {
-            try {
-                //服务器向客户端发送消息
-                session.getBasicRemote().sendText(message);
-            } catch (Exception e) {
-                e.printStackTrace();
+        for (SessionSender sender : sessionMap.values()) {
+            sender.offer(message);
+        }
+    }
+
+    /**
+     * 推送订单相关消息，只发送给订阅了该消息类型的会话
+     * 消息只序列化一次，所有会话共享同一个json字符串
+     *
+     * @param type    消息类型 1 来单提醒 2 客户催单
+     * @param orderId 订单id
+     * @param content 消息内容
+     */
+    public void sendToTopic(Integer type, Long orderId, String content) {
+        sendToTopic(type, buildMessage(type, orderId, content));
+    }
+
+    /**
+     * 构造订单相关消息的json：{"type":1,"orderId":1,"content":"订单号: xxx"}
+     *
+     * @param type
+     * @param orderId
+     * @param content
+     * @return
+     */
+    public static String buildMessage(Integer type, Long orderId, String content) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("type", type);
+        map.put("orderId", orderId);
+        map.put("content", content);
+        return JSON.toJSONString(map);
+    }
+
+    /**
+     * 推送已序列化的消息，只发送给订阅了该消息类型的会话
+     *
+     * @param type
+     * @param message
+     */
+    public void sendToTopic(Integer type, String message) {
+        for (SessionSender sender : sessionMap.values()) {
+            if (sender.subscribes(type)) {
+                sender.offer(message);
             }
         }
     }
 
-}
+    /**
+     * 发送统计：连接数、队列积压数、已发送/丢弃/失败的消息数、平均和最大发送耗时(毫秒)
+     * 最大发送耗时在每次获取后重新统计
+     *
+     * @return
+     */
+    public Map<String, Number> getMetrics() {
+        int queueDepth = 0;
+        for (SessionSender sender : sessionMap.values()) {
+            queueDepth += sender.queue.size();
+        }
+        long sent = sentCount.sum();
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("sessions", sessionMap.size());
+        metrics.put("queueDepth", queueDepth);
+        metrics.put("sent", sent);
+        metrics.put("dropped", droppedCount.sum());
+        metrics.put("failed", failedCount.sum());
+        metrics.put("avgSendMillis", sent == 0 ? 0.0 : sendNanos.sum() / 1e6 / sent);
+        metrics.put("maxSendMillis", maxSendNanos.getAndSet(0) / 1e6);
+        return metrics;
+    }
 
+    /**
+     * 解析客户端订阅的消息类型，未指定时返回null，表示订阅全部类型，无法识别的类型被忽略
+     *
+     * @param session
+     * @return
+     */
+    private static Set<Integer> getSubscribedTypes(Session session) {
+        List<String> values = session.getRequestParameterMap().get(WebSocketConstant.TYPES_PARAM);
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        Set<Integer> types = new HashSet<>();
+        for (String value : values) {
+            for (String type : value.split(",")) {
+                if (type.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    types.add(Integer.valueOf(type.trim()));
+                } catch (NumberFormatException e) {
+                    //忽略无法识别的类型，保留其余有效的订阅
+                    log.warn("忽略无法识别的订阅类型:{}", type);
+                }
+            }
+        }
+        return Collections.unmodifiableSet(types);
+    }
+
+    private static void remove(String sid, Session session) {
+        SessionSender sender = sessionMap.get(sid);
+        //同一个sid可能已经重新建立了连接，只移除当前会话
+        if (sender != null && sender.session == session) {
+            sessionMap.remove(sid, sender);
+            sender.queue.clear();
+        }
+    }
+
+    /**
+     * 单个会话的发送队列，同一时刻最多只有一条消息在异步发送中
+     */
+    private static class SessionSender {
+        private final String sid;
+        private final Session session;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        //订阅的消息类型，null表示全部
+        private final Set<Integer> types;
+
+        SessionSender(String sid, Session session, Set<Integer> types) {
+            this.sid = sid;
+            this.session = session;
+            this.types = types;
+        }
+
+        boolean subscribes(Integer type) {
+            return types == null || types.contains(type);
+        }
+
+        void offer(String message) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(message)) {
+                //客户端接收过慢，丢弃消息并断开连接
+                droppedCount.add(queue.size() + 1);
+                log.warn("客户端：{}消息积压超过{}条，断开连接", sid, QUEUE_CAPACITY);
+                close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "backlogged"));
+                return;
+            }
+            drain();
+        }
+
+        void drain() {
+            while (sending.compareAndSet(false, true)) {
+                String message = queue.poll();
+                if (message == null) {
+                    sending.set(false);
+                    //释放发送标记后如有新消息入队，继续发送
+                    if (queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    session.getAsyncRemote().sendText(message, result -> onSent(start, result));
+                } catch (Exception e) {
+                    failedCount.increment();
+                    sending.set(false);
+                    log.warn("客户端：{}消息发送失败:{}", sid, e.getMessage());
+                    close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "send failed"));
+                }
+                return;
+            }
+        }
 
+        void onSent(long start, SendResult result) {
+            long nanos = System.nanoTime() - start;
+            sendNanos.add(nanos);
+            maxSendNanos.accumulateAndGet(nanos, Math::max);
+            sending.set(false);
+            if (result.isOK()) {
+                sentCount.increment();
+                drain();
+            } else {
+                failedCount.increment();
+                log.warn("客户端：{}消息发送失败:{}", sid, result.getException() == null ? null : result.getException().getMessage());
+                close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "send failed"));
+            }
+        }
+
+        /**
+         * 标记会话已关闭并移除，关闭连接交给关闭线程执行
+         *
+         * @param reason
+         */
+        void close(CloseReason reason) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            remove(sid, session);
+            queue.clear();
+            closeExecutor.execute(() -> {
+                try {
+                    if (session.isOpen()) {
+                        session.close(reason);
+                    }
+                } catch (Exception e) {
+                    log.warn("客户端：{}关闭连接失败:{}", sid, e.getMessage());
+                }
+            });
+        }
+    }
+
+}
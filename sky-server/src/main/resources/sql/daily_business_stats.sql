@@ -0,0 +1,11 @@
+-- 每日营业数据汇总表，只保存已经结束的日期，当天数据直接查询订单表
+-- 部署前在业务库中执行，汇总数据在首次查询报表时自动补算
+create table if not exists daily_business_stats
+(
+    stat_date         date                                not null comment '统计日期' primary key,
+    turnover          decimal(12, 2) default 0.00         not null comment '营业额',
+    order_count       int            default 0            not null comment '订单总数',
+    valid_order_count int            default 0            not null comment '有效订单数',
+    new_users         int            default 0            not null comment '新增用户数',
+    update_time       datetime                            null comment '更新时间'
+) comment '每日营业数据汇总';